@@ -0,0 +1,17 @@
+package geniusweb.sampleagent;
+
+/*
+ * Acceptance condition of the BOA agent, asked once per turn about the last offer of the opponent.
+ * Selected with the "acceptance" parameter: ThresholdAcceptance ("threshold", the default) or
+ * CombiAcceptance ("combi"). The offers of the opponent are fed to observe() as they arrive, so asking
+ * about an offer does not change the state of the strategy.
+ */
+
+public interface AcceptanceStrategy {
+
+    // Called with the utility value of each offer of the opponent, in the order of the session
+    void observe(double utility);
+
+    // True if the offer of the given utility value is accepted, threshold is the value of the concession curve
+    boolean isAcceptable(double utility, double threshold, double time);
+}
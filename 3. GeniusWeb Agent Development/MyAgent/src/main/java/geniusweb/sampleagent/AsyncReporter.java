@@ -0,0 +1,276 @@
+package geniusweb.sampleagent;
+
+import tudelft.utilities.logging.Reporter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/*
+ * Reporter that hands the log records over to a background thread, so that logging does not slow down
+ * the thread answering YourTurn. Records are put into a bounded lock-free ring buffer (multiple producers,
+ * one consumer) and the background thread drains them in batches to the delegate Reporter. Messages given
+ * as a Supplier are only formatted on the background thread. When the buffer is full the record is dropped,
+ * a log call never waits. The background thread parks while the buffer is empty and the producer of the
+ * next record unparks it, so an idle reporter uses no CPU.
+ */
+
+public class AsyncReporter implements Reporter, AutoCloseable {
+
+    public enum OverflowPolicy {
+        // Records that do not fit in the buffer are dropped silently, only counted
+        DROP,
+        // Records that do not fit in the buffer are dropped and the number of dropped records is logged
+        DROP_AND_REPORT
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int BATCH_SIZE = 64;
+
+    private final Reporter delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final int mask;
+    // Slot i is free for the producer at position p when sequences[i] == p and readable at p when it is p + 1
+    private final AtomicLongArray sequences;
+    private final Level[] levels;
+    // Either a String or a Supplier<String>
+    private final Object[] messages;
+    private final Throwable[] throwables;
+    // Next position to write, shared by the producers
+    private final AtomicLong tail = new AtomicLong();
+    // Next position to read, only written by the background thread
+    private volatile long head = 0;
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped = 0;
+    private volatile boolean closed = false;
+    // Producers between their check of closed and the end of their write, the background thread does not
+    // stop while there are any
+    private final AtomicInteger writers = new AtomicInteger();
+    // True while the background thread is parked or about to park, producers then unpark it
+    private volatile boolean idle = false;
+    // Threads waiting in flush(), woken through flushLock when the head moves
+    private final AtomicInteger flushWaiters = new AtomicInteger();
+    private final Object flushLock = new Object();
+    private final Thread drainer;
+
+    public AsyncReporter(Reporter delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.DROP_AND_REPORT);
+    }
+
+    // The capacity is rounded up to a power of two
+    public AsyncReporter(Reporter delegate, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be in [1, 2^30] but is " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+        this.levels = new Level[size];
+        this.messages = new Object[size];
+        this.throwables = new Throwable[size];
+        this.drainer = new Thread(this::drainLoop, "AsyncReporter");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void log(Level level, String msg) {
+        enqueue(level, msg, null);
+    }
+
+    @Override
+    public void log(Level level, String msg, Throwable thrown) {
+        enqueue(level, msg, thrown);
+    }
+
+    // The message is only built on the background thread, and not at all if the record is dropped
+    public void log(Level level, Supplier<String> msg) {
+        enqueue(level, msg, null);
+    }
+
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    public long getDroppedCount() {
+        return this.dropped.get();
+    }
+
+    // Waits until the records logged before this call are passed to the delegate, returns false on timeout
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = this.tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        // Registered before reading the head, so that the background thread either sees the waiter or the
+        // waiter sees the new head
+        this.flushWaiters.incrementAndGet();
+        try {
+            synchronized (this.flushLock) {
+                while (this.head < target && this.drainer.isAlive()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this.flushLock, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return this.head >= target;
+        } finally {
+            this.flushWaiters.decrementAndGet();
+        }
+        return true;
+    }
+
+    // Passes the remaining records to the delegate and stops the background thread
+    @Override
+    public void close() {
+        this.closed = true;
+        LockSupport.unpark(this.drainer);
+        try {
+            this.drainer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Level level, Object msg, Throwable thrown) {
+        // Registered before checking closed: either the background thread sees this writer and waits for
+        // its record, or this writer sees closed
+        this.writers.incrementAndGet();
+        if (this.closed) {
+            this.writers.decrementAndGet();
+            // Nothing drains the buffer anymore, the record is logged on the calling thread
+            deliver(level, msg, thrown);
+            return;
+        }
+        try {
+            write(level, msg, thrown);
+        } finally {
+            this.writers.decrementAndGet();
+            // Also after a dropped record, so that a closing background thread sees the writer is gone
+            if (this.idle) {
+                LockSupport.unpark(this.drainer);
+            }
+        }
+    }
+
+    private void write(Level level, Object msg, Throwable thrown) {
+        while (true) {
+            long position = this.tail.get();
+            int slot = (int) position & this.mask;
+            long difference = this.sequences.get(slot) - position;
+            if (difference == 0) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.levels[slot] = level;
+                    this.messages[slot] = msg;
+                    this.throwables[slot] = thrown;
+                    // Publishes the record to the background thread. A volatile write, not lazySet: it must
+                    // not be reordered with the read of idle, or a parking background thread could miss it
+                    this.sequences.set(slot, position + 1);
+                    return;
+                }
+            } else if (difference < 0) {
+                // The slot still holds a record of the previous lap: the buffer is full
+                this.dropped.incrementAndGet();
+                return;
+            }
+            // Another producer took the position, retrying with the next one
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            if (drainBatch() > 0) {
+                wakeFlushers();
+                continue;
+            }
+            reportDropped();
+            if (this.closed && this.writers.get() == 0 && this.head == this.tail.get()) {
+                wakeFlushers();
+                return;
+            }
+            this.idle = true;
+            // Checked again after setting idle: a record published before is seen here, one published
+            // after sees idle and unparks this thread
+            if (!isReadable() && !(this.closed && this.writers.get() == 0)) {
+                LockSupport.park(this);
+            }
+            this.idle = false;
+        }
+    }
+
+    // True if the record at the head is published
+    private boolean isReadable() {
+        long position = this.head;
+        return this.sequences.get((int) position & this.mask) == position + 1;
+    }
+
+    private void wakeFlushers() {
+        if (this.flushWaiters.get() > 0) {
+            synchronized (this.flushLock) {
+                this.flushLock.notifyAll();
+            }
+        }
+    }
+
+    // Passes at most BATCH_SIZE records to the delegate, returns the number of records passed
+    private int drainBatch() {
+        long position = this.head;
+        int count = 0;
+        while (count < BATCH_SIZE) {
+            int slot = (int) position & this.mask;
+            if (this.sequences.get(slot) != position + 1) {
+                break;
+            }
+            Level level = this.levels[slot];
+            Object msg = this.messages[slot];
+            Throwable thrown = this.throwables[slot];
+            this.messages[slot] = null;
+            this.throwables[slot] = null;
+            // The slot is free again for the producer writing the next lap
+            this.sequences.lazySet(slot, position + this.mask + 1);
+            position++;
+            count++;
+            try {
+                deliver(level, msg, thrown);
+            } catch (RuntimeException e) {
+                // A failing message or delegate must not stop the background thread
+                this.dropped.incrementAndGet();
+            }
+        }
+        this.head = position;
+        return count;
+    }
+
+    private void reportDropped() {
+        long count = this.dropped.get();
+        if (this.overflowPolicy == OverflowPolicy.DROP_AND_REPORT && count > this.reportedDropped) {
+            this.delegate.log(Level.WARNING, "AsyncReporter dropped " + (count - this.reportedDropped) +
+                    " log records, " + count + " in total");
+            this.reportedDropped = count;
+        }
+    }
+
+    private void deliver(Level level, Object msg, Throwable thrown) {
+        if (thrown == null) {
+            this.delegate.log(level, format(msg));
+        } else {
+            this.delegate.log(level, format(msg), thrown);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String format(Object msg) {
+        return msg instanceof Supplier ? ((Supplier<String>) msg).get() : (String) msg;
+    }
+}
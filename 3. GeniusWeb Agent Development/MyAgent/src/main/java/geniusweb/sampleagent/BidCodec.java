@@ -0,0 +1,161 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.Domain;
+import geniusweb.issuevalue.NumberValue;
+import geniusweb.issuevalue.Value;
+import geniusweb.issuevalue.ValueSet;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+ * Encodes bids of a domain as int arrays: issues are mapped to ordinals (alphabetical order)
+ * and the value of each issue is mapped to its index in the ValueSet of the issue.
+ * An issue that has no value in a (partial) bid is encoded as MISSING.
+ * If the domain is small enough, an encoded bid can also be packed into a single long.
+ */
+
+public class BidCodec {
+
+    public static final int MISSING = -1;
+    // Issues having more values than this can not be encoded
+    static final int MAX_VALUES_PER_ISSUE = 1 << 20;
+
+    private final String[] issues;
+    private final Map<String, Integer> issueOrdinals = new HashMap<>();
+    // values[i][v] is the value having ordinal v of issue i
+    private final Value[][] values;
+    // Ordinal of each value, per issue. Keys are normalized, see key(Value)
+    private final List<Map<Object, Integer>> valueOrdinals = new ArrayList<>();
+    // Bit offset and bit count of each issue in a packed bid, ordinal + 1 is stored so that MISSING is 0
+    private final int[] packShifts;
+    private final int[] packBits;
+    private final boolean packable;
+
+    public BidCodec(Domain domain) {
+        this.issues = new TreeSet<>(domain.getIssues()).toArray(new String[0]);
+        this.values = new Value[this.issues.length][];
+        for (int i = 0; i < this.issues.length; i++) {
+            this.issueOrdinals.put(this.issues[i], i);
+            ValueSet valueSet = domain.getValues(this.issues[i]);
+            if (valueSet.size().compareTo(BigInteger.valueOf(MAX_VALUES_PER_ISSUE)) > 0) {
+                throw new IllegalArgumentException("Issue " + this.issues[i] + " has too many values to be encoded: " +
+                        valueSet.size());
+            }
+            int count = valueSet.size().intValue();
+            this.values[i] = new Value[count];
+            Map<Object, Integer> ordinals = new HashMap<>();
+            for (int v = 0; v < count; v++) {
+                Value value = valueSet.get(BigInteger.valueOf(v));
+                this.values[i][v] = value;
+                ordinals.put(key(value), v);
+            }
+            this.valueOrdinals.add(ordinals);
+        }
+
+        this.packShifts = new int[this.issues.length];
+        this.packBits = new int[this.issues.length];
+        int shift = 0;
+        for (int i = 0; i < this.issues.length; i++) {
+            this.packShifts[i] = shift;
+            this.packBits[i] = 32 - Integer.numberOfLeadingZeros(this.values[i].length);
+            shift += this.packBits[i];
+        }
+        this.packable = shift <= 63;
+    }
+
+    public int getIssueCount() {
+        return this.issues.length;
+    }
+
+    public String getIssue(int issue) {
+        return this.issues[issue];
+    }
+
+    // Ordinal of the issue, or MISSING if the issue is not in the domain
+    public int getIssueOrdinal(String issue) {
+        Integer ordinal = this.issueOrdinals.get(issue);
+        return ordinal == null ? MISSING : ordinal;
+    }
+
+    public int getValueCount(int issue) {
+        return this.values[issue].length;
+    }
+
+    public Value getValue(int issue, int ordinal) {
+        return this.values[issue][ordinal];
+    }
+
+    // Ordinal of the value of the issue, or MISSING if the value is null or not in the domain
+    public int getValueOrdinal(int issue, Value value) {
+        if (value == null) {
+            return MISSING;
+        }
+        Integer ordinal = this.valueOrdinals.get(issue).get(key(value));
+        return ordinal == null ? MISSING : ordinal;
+    }
+
+    public int[] encode(Bid bid) {
+        int[] codes = new int[this.issues.length];
+        encode(bid, codes);
+        return codes;
+    }
+
+    // Encodes the bid into the given array, so that no array has to be allocated
+    public void encode(Bid bid, int[] codes) {
+        for (int i = 0; i < this.issues.length; i++) {
+            codes[i] = getValueOrdinal(i, bid.getValue(this.issues[i]));
+        }
+    }
+
+    public Bid decode(int[] codes) {
+        Map<String, Value> issueValues = new HashMap<>();
+        for (int i = 0; i < this.issues.length; i++) {
+            if (codes[i] != MISSING) {
+                issueValues.put(this.issues[i], this.values[i][codes[i]]);
+            }
+        }
+        return new Bid(issueValues);
+    }
+
+    // True if every bid of the domain fits into a single long, see pack(int[])
+    public boolean isPackable() {
+        return this.packable;
+    }
+
+    public long pack(int[] codes) {
+        if (!this.packable) {
+            throw new IllegalStateException("Bids of this domain do not fit into a long");
+        }
+        long packed = 0;
+        for (int i = 0; i < codes.length; i++) {
+            packed |= (long) (codes[i] + 1) << this.packShifts[i];
+        }
+        return packed;
+    }
+
+    public void unpack(long packed, int[] codes) {
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = unpack(packed, i);
+        }
+    }
+
+    // Value ordinal of one issue of a packed bid
+    public int unpack(long packed, int issue) {
+        long mask = (1L << this.packBits[issue]) - 1;
+        return (int) ((packed >>> this.packShifts[issue]) & mask) - 1;
+    }
+
+    // Number values are compared by their numeric value, so that 12 and 12.0 get the same ordinal
+    private static Object key(Value value) {
+        if (value instanceof NumberValue) {
+            return ((NumberValue) value).getValue().stripTrailingZeros();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,139 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+/*
+ * Immutable index of bids sorted by their utility value (ascending order).
+ * Bids are kept in a flat array with a parallel array of utilities, so the bids
+ * having utility >= some threshold form a contiguous slice [ceilingIndex(threshold), size()).
+ * Apart from the bids themselves the index holds two arrays: no entry, node or boxed
+ * utility objects per bid.
+ */
+
+public class BidIndex implements UtilityIndex {
+
+    private final Bid[] bids;
+    private final double[] utilities;
+
+    // Builds the index from parallel arrays that are already sorted in ascending utility order, the arrays are not copied
+    BidIndex(Bid[] bids, double[] utilities) {
+        if (bids.length != utilities.length) {
+            throw new IllegalArgumentException("Bids and utilities have different lengths");
+        }
+        for (int i = 1; i < utilities.length; i++) {
+            if (utilities[i] < utilities[i - 1]) {
+                throw new IllegalArgumentException("Utilities are not sorted in ascending order");
+            }
+        }
+        this.bids = bids;
+        this.utilities = utilities;
+    }
+
+    /*
+     * Builds the index from parallel arrays in any order. Bids having the same utility value keep
+     * their relative order, so the result only depends on the input. The arrays are not modified.
+     */
+    public static BidIndex sort(Bid[] bids, double[] utilities) {
+        if (bids.length != utilities.length) {
+            throw new IllegalArgumentException("Bids and utilities have different lengths");
+        }
+        int size = bids.length;
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[size], 0, size, utilities);
+        Bid[] sortedBids = new Bid[size];
+        double[] sortedUtilities = new double[size];
+        for (int i = 0; i < size; i++) {
+            sortedBids[i] = bids[order[i]];
+            sortedUtilities[i] = utilities[order[i]];
+        }
+        return new BidIndex(sortedBids, sortedUtilities);
+    }
+
+    // Copies an index of another kind, for example a mapped one, onto the heap
+    public static BidIndex copyOf(UtilityIndex index) {
+        Bid[] bids = new Bid[index.size()];
+        double[] utilities = new double[index.size()];
+        for (int i = 0; i < bids.length; i++) {
+            bids[i] = index.getBid(i);
+            utilities[i] = index.getUtility(i);
+        }
+        return new BidIndex(bids, utilities);
+    }
+
+    @Override
+    public int size() {
+        return this.bids.length;
+    }
+
+    @Override
+    public Bid getBid(int index) {
+        return this.bids[index];
+    }
+
+    @Override
+    public double getUtility(int index) {
+        return this.utilities[index];
+    }
+
+    @Override
+    public Bid getMaxUtilityBid() {
+        return this.bids.length == 0 ? null : this.bids[this.bids.length - 1];
+    }
+
+    @Override
+    public double getMaxUtility() {
+        return this.utilities.length == 0 ? Double.NaN : this.utilities[this.utilities.length - 1];
+    }
+
+    @Override
+    public int ceilingIndex(double threshold) {
+        int low = 0;
+        int high = this.utilities.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.utilities[mid] < threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void copyCodes(int index, BidCodec codec, int[] codes) {
+        codec.encode(this.bids[index], codes);
+    }
+
+    // Number of bids having utility value >= threshold
+    public int countAtLeast(double threshold) {
+        return this.bids.length - ceilingIndex(threshold);
+    }
+
+    // Stable merge sort of the positions in order[from, to) by their utility value
+    private static void mergeSort(int[] order, int[] buffer, int from, int to, double[] utilities) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, buffer, from, middle, utilities);
+        mergeSort(order, buffer, middle, to, utilities);
+        if (utilities[order[middle - 1]] <= utilities[order[middle]]) {
+            // Both halves are already in order
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && utilities[buffer[left]] <= utilities[buffer[right]])) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package geniusweb.sampleagent;
+
+import java.util.Random;
+
+/*
+ * Draws random bids from a utility band of a UtilityIndex, addressed by their position in the index.
+ * A band is a slice [from, to) of the index, e.g. [ceilingIndex(threshold), size()) for the acceptable
+ * bids. A uniform draw takes constant time. A draw weighted by the utility values takes O(log n): the
+ * prefix sums of the utilities of the whole index are computed once, on the first weighted draw, so
+ * that any band can be sampled with a binary search on them. An alias table would sample in constant
+ * time but would have to be rebuilt for each band, and the band changes with the threshold.
+ *
+ * The sampler uses the given Random only, so the draws are reproducible with a seeded Random.
+ */
+
+public class BidSampler {
+
+    private final UtilityIndex index;
+    private final Random random;
+    // prefixSums[i] is the sum of the utilities of the bids [0, i), built on the first weighted draw
+    private double[] prefixSums;
+
+    public BidSampler(UtilityIndex index, Random random) {
+        this.index = index;
+        this.random = random;
+    }
+
+    // Position of a bid drawn uniformly from the band [from, to)
+    public int sampleUniform(int from, int to) {
+        checkBand(from, to);
+        return from + this.random.nextInt(to - from);
+    }
+
+    /*
+     * Position of a bid drawn from the band [from, to) with a probability proportional to its utility
+     * value. Bids with a utility value <= 0 are never drawn, unless no bid of the band has a positive
+     * utility value, then the draw is uniform.
+     */
+    public int sampleWeighted(int from, int to) {
+        checkBand(from, to);
+        double[] sums = getPrefixSums();
+        double low = sums[from];
+        double total = sums[to] - low;
+        if (!(total > 0)) {
+            return sampleUniform(from, to);
+        }
+        double target = low + this.random.nextDouble() * total;
+        // Last position in [from, to) whose prefix sum is <= target: its bid covers [sums[i], sums[i + 1]),
+        // so a bid of zero width is never selected
+        int lowIndex = from;
+        int highIndex = to - 1;
+        while (lowIndex < highIndex) {
+            int mid = (lowIndex + highIndex + 1) >>> 1;
+            if (sums[mid] <= target) {
+                lowIndex = mid;
+            } else {
+                highIndex = mid - 1;
+            }
+        }
+        return lowIndex;
+    }
+
+    private double[] getPrefixSums() {
+        if (this.prefixSums == null) {
+            int size = this.index.size();
+            double[] sums = new double[size + 1];
+            for (int i = 0; i < size; i++) {
+                sums[i + 1] = sums[i] + Math.max(0, this.index.getUtility(i));
+            }
+            this.prefixSums = sums;
+        }
+        return this.prefixSums;
+    }
+
+    private void checkBand(int from, int to) {
+        if (from < 0 || to > this.index.size() || from >= to) {
+            throw new IllegalArgumentException("Band [" + from + ", " + to + ") is empty or out of [0, " +
+                    this.index.size() + ")");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+/*
+ * Bidding strategy of the BOA agent, asked for the bid to offer when the agent does not accept. Selected
+ * with the "bidding" parameter: the Pareto search of MyAgent ("pareto", the default) or
+ * TimeDependentBidding ("timeDependent").
+ */
+
+public interface BiddingStrategy {
+
+    // Bid to offer, threshold is the value of the concession curve
+    Bid chooseBid(double threshold);
+}
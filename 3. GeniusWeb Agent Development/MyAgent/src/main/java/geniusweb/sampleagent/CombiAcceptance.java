@@ -0,0 +1,33 @@
+package geniusweb.sampleagent;
+
+/*
+ * AC_combi of Baarslag et al.: accepts an offer having a utility value greater than the value of the
+ * concession curve and, in the final phase of the negotiation, an offer at least as good as the best
+ * previous offer of the opponent, since a better one is unlikely to come before the deadline.
+ *
+ * Keeps the best utility value of the offers it observed, so a new instance is needed for each session.
+ */
+
+public final class CombiAcceptance implements AcceptanceStrategy {
+
+    public static final double DEFAULT_FINAL_PHASE = 0.98;
+
+    private final double finalPhase;
+    private double bestUtility = Double.NEGATIVE_INFINITY;
+
+    // finalPhase is the time from which the best previous offer is accepted
+    public CombiAcceptance(double finalPhase) {
+        this.finalPhase = finalPhase;
+    }
+
+    @Override
+    public void observe(double utility) {
+        this.bestUtility = Math.max(this.bestUtility, utility);
+    }
+
+    // The offer asked about has been observed already, so it is at least as good as the best one if it is the best
+    @Override
+    public boolean isAcceptable(double utility, double threshold, double time) {
+        return utility > threshold || (time >= this.finalPhase && utility >= this.bestUtility);
+    }
+}
@@ -0,0 +1,13 @@
+package geniusweb.sampleagent;
+
+/*
+ * Concession curve of the BOA agent: the minimum utility value of the bids the agent offers and accepts at
+ * a time of the negotiation. Selected with the "concession" parameter: LinearConcession ("linear", the
+ * default) or TimeDependentConcession ("boulware", "conceder").
+ */
+
+public interface ConcessionStrategy {
+
+    // Minimum utility value at the time in [0, 1]
+    double getAcceptableUtility(double time);
+}
@@ -0,0 +1,112 @@
+package geniusweb.sampleagent;
+
+import java.util.Arrays;
+
+/*
+ * Fixed-size histogram of nanosecond durations with log-linear buckets, in the style of HdrHistogram.
+ * Values below 128 ns have their own bucket, larger values are grouped by their 7 most significant
+ * bits, so that a recorded value is known within 1/64 (about 1.6%) of its magnitude. All buckets are
+ * allocated up front: recording a value only increments counters. Not thread-safe.
+ */
+
+public class LatencyHistogram {
+
+    // Number of buckets of the same width within a power of two
+    private static final int SUB_BUCKET_HALF_COUNT = 64;
+    private static final int SUB_BUCKET_COUNT = 2 * SUB_BUCKET_HALF_COUNT;
+    private static final int SUB_BUCKET_BITS = 6;
+    // Durations are tracked up to 2^43 ns (about 2.4 hours), longer durations are counted in the last bucket
+    private static final int MAX_MAGNITUDE = 42;
+    public static final long MAX_TRACKABLE_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private final long[] counts = new long[(MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_COUNT];
+    private long totalCount = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private double sum = 0;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        this.counts[bucketIndex(Math.min(value, MAX_TRACKABLE_VALUE))]++;
+        this.totalCount++;
+        this.sum += value;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(this.counts, 0);
+        this.totalCount = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+        this.sum = 0;
+    }
+
+    public long getCount() {
+        return this.totalCount;
+    }
+
+    // Exact minimum and maximum recorded values, 0 if nothing is recorded
+    public long getMin() {
+        return this.totalCount == 0 ? 0 : this.min;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    public double getMean() {
+        return this.totalCount == 0 ? 0 : this.sum / this.totalCount;
+    }
+
+    // Value below or at which the given percentage of the recorded values are, within the bucket precision
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100] but is " + percentile);
+        }
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.totalCount));
+        long seen = 0;
+        for (int index = 0; index < this.counts.length; index++) {
+            seen += this.counts[index];
+            if (seen >= rank) {
+                if (index == this.counts.length - 1) {
+                    // The last bucket also counts the values beyond the trackable range
+                    return this.max;
+                }
+                // The highest value of the bucket, never more than what was actually recorded
+                return Math.max(getMin(), Math.min(highestValue(index), this.max));
+            }
+        }
+        return this.max;
+    }
+
+    static int bucketIndex(long value) {
+        // Position of the highest bit, at least SUB_BUCKET_BITS so that small values are not shifted
+        int magnitude = 63 - Long.numberOfLeadingZeros(value | (SUB_BUCKET_COUNT - 1));
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF_COUNT) << shift;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF_COUNT - 1;
+        return lowestValue(index) + (1L << shift) - 1;
+    }
+}
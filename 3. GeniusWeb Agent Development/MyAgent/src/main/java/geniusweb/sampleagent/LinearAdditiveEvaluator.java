@@ -0,0 +1,81 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profile.utilityspace.ValueSetUtilities;
+
+/*
+ * Double precision utility function of a LinearAdditive profile. The utility of every value
+ * is multiplied by the weight of its issue once, so evaluating an encoded bid is one array
+ * load and one addition per issue instead of BigDecimal arithmetic and string-keyed lookups.
+ */
+
+public class LinearAdditiveEvaluator {
+
+    // Maximum difference between the utility computed here and LinearAdditive.getUtility(bid)
+    public static final double EPSILON = 1e-9;
+
+    private final BidCodec codec;
+    // weightedUtilities[i][v] = weight of issue i * utility of value v of issue i
+    private final double[][] weightedUtilities;
+
+    public LinearAdditiveEvaluator(LinearAdditive profile, BidCodec codec) {
+        this.codec = codec;
+        this.weightedUtilities = new double[codec.getIssueCount()][];
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            String issue = codec.getIssue(i);
+            double weight = profile.getWeight(issue).doubleValue();
+            ValueSetUtilities utilities = profile.getUtilities().get(issue);
+            this.weightedUtilities[i] = new double[codec.getValueCount(i)];
+            for (int v = 0; v < codec.getValueCount(i); v++) {
+                this.weightedUtilities[i][v] = weight * utilities.getUtility(codec.getValue(i, v)).doubleValue();
+            }
+        }
+    }
+
+    public BidCodec getCodec() {
+        return this.codec;
+    }
+
+    // Utility of a bid encoded by the codec, missing issues contribute nothing
+    public double getUtility(int[] codes) {
+        double utility = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] != BidCodec.MISSING) {
+                utility += this.weightedUtilities[i][codes[i]];
+            }
+        }
+        return utility;
+    }
+
+    // Utility of a bid without encoding it into an array first
+    public double getUtility(Bid bid) {
+        double utility = 0;
+        for (int i = 0; i < this.weightedUtilities.length; i++) {
+            int ordinal = this.codec.getValueOrdinal(i, bid.getValue(this.codec.getIssue(i)));
+            if (ordinal != BidCodec.MISSING) {
+                utility += this.weightedUtilities[i][ordinal];
+            }
+        }
+        return utility;
+    }
+
+    // Contribution of one issue value to the utility of a bid
+    public double getWeightedUtility(int issue, int ordinal) {
+        return this.weightedUtilities[issue][ordinal];
+    }
+
+    /*
+     * Utility of a bid of the given utility after the value of one issue is changed, in constant time.
+     * Either ordinal can be BidCodec.MISSING.
+     */
+    public double getUtilityAfterChange(double utility, int issue, int oldOrdinal, int newOrdinal) {
+        if (oldOrdinal != BidCodec.MISSING) {
+            utility -= this.weightedUtilities[issue][oldOrdinal];
+        }
+        if (newOrdinal != BidCodec.MISSING) {
+            utility += this.weightedUtilities[issue][newOrdinal];
+        }
+        return utility;
+    }
+}
@@ -0,0 +1,13 @@
+package geniusweb.sampleagent;
+
+/*
+ * Concedes linearly from 1.0 at the start of the negotiation to 0.7 at the deadline.
+ */
+
+public final class LinearConcession implements ConcessionStrategy {
+
+    @Override
+    public double getAcceptableUtility(double time) {
+        return 0.7 + (1 - time) * 0.3;
+    }
+}
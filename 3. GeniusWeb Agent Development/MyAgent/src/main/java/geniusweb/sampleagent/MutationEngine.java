@@ -0,0 +1,163 @@
+package geniusweb.sampleagent;
+
+import java.util.Random;
+
+/*
+ * Chooses how to mutate the selected bid with a value offered by the opponent. Each combination of a base
+ * bid, a distinct offer of the opponent and an issue replaces the value of that issue in the base bid. Our
+ * utility and the utility estimated for the opponent of the result are both known from the per-issue
+ * deltas in constant time, so many combinations are tried per turn. The result best for the opponent whose
+ * utility stays acceptable is chosen, an unchanged base bid included.
+ *
+ * The first base bid is the selected one, MyAgent adds its neighbours on the Pareto frontier. An offer the
+ * opponent repeated is only tried once: the search goes over the distinct offers, from the most recently
+ * offered for the first time to the oldest. It goes through the base bids in order and stops after
+ * maxCombinations combinations or when the time budget is used up, whichever comes first. A search cut by
+ * the time budget depends on the speed of the machine; it is repeated exactly by giving its combination
+ * count as the limit of the same search, which does not read the clock.
+ */
+
+public class MutationEngine {
+
+    // Number of combinations tried between two reads of the clock
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final LinearAdditiveEvaluator evaluator;
+    private final OpponentModel model;
+    private final int maxCombinations;
+    private final long budgetNanos;
+    // The single base bid of mutate(int[], ...), so that it allocates nothing
+    private final int[][] singleBase = new int[1][];
+    private final double[] singleUtility = new double[1];
+    // Number of combinations tried in the last call of mutate()
+    private int lastCombinationCount = 0;
+    // True if the last call of mutate() was stopped by the time budget
+    private boolean lastCutByTime = false;
+    // Base bid the result of the last call of mutate() was made from
+    private int lastBase = 0;
+
+    public MutationEngine(LinearAdditiveEvaluator evaluator, OpponentModel model, int maxCombinations,
+                          long budgetNanos) {
+        if (maxCombinations <= 0) {
+            throw new IllegalArgumentException("Number of combinations must be positive but is " + maxCombinations);
+        }
+        this.evaluator = evaluator;
+        this.model = model;
+        this.maxCombinations = maxCombinations;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /*
+     * Replaces at most one value of codes, the encoded bid having the given utility, and returns the
+     * utility of the result. The result never has a lower utility than min(utility, threshold), so a
+     * bid below the threshold is only mutated into a better one. The random generator chooses the first
+     * issue tried in each offer, so that equally good combinations do not always yield the same bid.
+     */
+    public double mutate(int[] codes, double utility, double threshold, OfferHistory offers, Random random) {
+        return mutate(codes, utility, threshold, offers, random, 0);
+    }
+
+    /*
+     * As mutate() above, but if limit is positive the search stops after min(limit, maxCombinations)
+     * combinations and ignores the time budget, so that its result only depends on its arguments.
+     */
+    public double mutate(int[] codes, double utility, double threshold, OfferHistory offers, Random random,
+                         int limit) {
+        this.singleBase[0] = codes;
+        this.singleUtility[0] = utility;
+        double result = mutate(this.singleBase, this.singleUtility, 1, threshold, offers, random, limit);
+        this.singleBase[0] = null;
+        return result;
+    }
+
+    /*
+     * As mutate() above over the base bids bases[0, baseCount) having the given utilities. The result is
+     * written into bases[0] and its utility returned. Base 0 keeps the floor min(utility, threshold), the
+     * other bases are only chosen if the result reaches the threshold.
+     */
+    public double mutate(int[][] bases, double[] utilities, int baseCount, double threshold, OfferHistory offers,
+                         Random random, int limit) {
+        long start = System.nanoTime();
+        boolean timed = limit <= 0;
+        int maxCount = timed ? this.maxCombinations : Math.min(limit, this.maxCombinations);
+        boolean cutByTime = false;
+        int issueCount = bases[0].length;
+        int firstIssue = random.nextInt(issueCount);
+
+        // Unchanged base 0 unless a result better for the opponent is found
+        int bestBase = 0;
+        int bestIssue = -1;
+        int bestValue = BidCodec.MISSING;
+        double bestUtility = utilities[0];
+        double bestOpponentUtility = this.model.getUtility(bases[0]);
+        int count = 0;
+        search:
+        for (int base = 0; base < baseCount; base++) {
+            int[] codes = bases[base];
+            double utility = utilities[base];
+            double floor = base == 0 ? Math.min(utility, threshold) : threshold;
+            double opponentUtility = base == 0 ? bestOpponentUtility : this.model.getUtility(codes);
+            if (utility >= floor && opponentUtility > bestOpponentUtility) {
+                bestBase = base;
+                bestIssue = -1;
+                bestUtility = utility;
+                bestOpponentUtility = opponentUtility;
+            }
+            for (int offer = offers.getDistinctCount() - 1; offer >= 0; offer--) {
+                for (int n = 0; n < issueCount; n++) {
+                    if (count == maxCount) {
+                        break search;
+                    }
+                    if (timed && count % CLOCK_INTERVAL == 0 && count > 0
+                            && System.nanoTime() - start >= this.budgetNanos) {
+                        cutByTime = true;
+                        break search;
+                    }
+                    count++;
+                    int issue = firstIssue + n < issueCount ? firstIssue + n : firstIssue + n - issueCount;
+                    int value = offers.getDistinctValueOrdinal(offer, issue);
+                    int current = codes[issue];
+                    if (value == BidCodec.MISSING || value == current) {
+                        continue;
+                    }
+                    double mutatedUtility = this.evaluator.getUtilityAfterChange(utility, issue, current, value);
+                    if (mutatedUtility < floor) {
+                        continue;
+                    }
+                    double mutatedOpponentUtility = opponentUtility + this.model.getIssueWeight(issue) *
+                            (this.model.getValueUtility(issue, value) - this.model.getValueUtility(issue, current));
+                    if (mutatedOpponentUtility > bestOpponentUtility) {
+                        bestOpponentUtility = mutatedOpponentUtility;
+                        bestBase = base;
+                        bestIssue = issue;
+                        bestValue = value;
+                        bestUtility = mutatedUtility;
+                    }
+                }
+            }
+        }
+        this.lastCombinationCount = count;
+        this.lastCutByTime = cutByTime;
+        this.lastBase = bestBase;
+        if (bestBase != 0) {
+            System.arraycopy(bases[bestBase], 0, bases[0], 0, issueCount);
+        }
+        if (bestIssue >= 0) {
+            bases[0][bestIssue] = bestValue;
+        }
+        return bestUtility;
+    }
+
+    public int getLastCombinationCount() {
+        return this.lastCombinationCount;
+    }
+
+    public boolean isLastCutByTime() {
+        return this.lastCutByTime;
+    }
+
+    // Base bid the result of the last call of mutate() was made from, 0 for the selected bid
+    public int getLastBase() {
+        return this.lastBase;
+    }
+}
@@ -2,12 +2,14 @@ package geniusweb.sampleagent;
 
 import geniusweb.actions.Accept;
 import geniusweb.actions.Action;
+import geniusweb.actions.EndNegotiation;
+import geniusweb.actions.FileLocation;
+import geniusweb.actions.LearningDone;
 import geniusweb.actions.Offer;
 import geniusweb.actions.PartyId;
 import geniusweb.bidspace.AllBidsList;
 import geniusweb.issuevalue.Bid;
 import geniusweb.issuevalue.Domain;
-import geniusweb.issuevalue.Value;
 import geniusweb.party.Capabilities;
 import geniusweb.party.DefaultParty;
 import geniusweb.inform.ActionDone;
@@ -16,17 +18,25 @@ import geniusweb.inform.Inform;
 import geniusweb.inform.Settings;
 import geniusweb.inform.YourTurn;
 import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
 import geniusweb.profile.utilityspace.UtilitySpace;
 import geniusweb.profileconnection.ProfileConnectionFactory;
 import geniusweb.profileconnection.ProfileInterface;
 import geniusweb.progress.Progress;
 import geniusweb.progress.ProgressRounds;
+import geniusweb.references.Parameters;
 import tudelft.utilities.logging.Reporter;
 
 import javax.websocket.DeploymentException;
+import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /*
@@ -36,6 +46,51 @@ import java.util.logging.Level;
 
 public class MyAgent extends DefaultParty {
 
+    // Settings parameter: bid space size above which the bids are not materialized but streamed
+    static final String STREAMING_THRESHOLD_PARAMETER = "streamingThreshold";
+    // Settings parameter: number of best bids kept in streaming mode
+    static final String STREAMING_TOP_K_PARAMETER = "streamingTopK";
+    private static final long DEFAULT_STREAMING_THRESHOLD = 1000000;
+    private static final long DEFAULT_STREAMING_TOP_K = 10000;
+    // Settings parameter: number of threads used to precompute the utility values
+    static final String PARALLELISM_PARAMETER = "parallelism";
+    // Settings parameter: number of opponent offers after which the Pareto frontier is rebuilt
+    static final String PARETO_REFRESH_PARAMETER = "paretoRefreshInterval";
+    private static final long DEFAULT_PARETO_REFRESH = 10;
+    // Settings parameter: file the latency summary is written to at the end of the session, none if not set
+    static final String METRICS_FILE_PARAMETER = "metricsFile";
+    // Settings parameters: capacity of the log buffer and what to do with the records that do not fit
+    static final String LOG_BUFFER_PARAMETER = "logBufferSize";
+    static final String LOG_OVERFLOW_PARAMETER = "logOverflowPolicy";
+    // Settings parameter given by the tournament: UUID of the file kept between the sessions
+    static final String PERSISTENT_STATE_PARAMETER = "persistentstate";
+    // Settings parameter given by the tournament: UUID of the file of this session's data in SAOP, list of the
+    // UUIDs of the files of the previous sessions in Learn
+    static final String NEGOTIATION_DATA_PARAMETER = "negotiationdata";
+    private static final String LEARN_PROTOCOL = "Learn";
+    // Settings parameter: false keeps the bid index on the heap instead of in a memory-mapped file
+    static final String OFF_HEAP_INDEX_PARAMETER = "offHeapIndex";
+    // Settings parameter: time before the deadline at which an action is sent, whatever the search is doing
+    static final String SAFETY_MARGIN_PARAMETER = "safetyMarginMillis";
+    private static final long DEFAULT_SAFETY_MARGIN = 50;
+    // Settings parameter: false disables the preparation of the next offer while the opponent is thinking
+    static final String SPECULATION_PARAMETER = "speculation";
+    // Settings parameter: seed of the random generator, so that a session can be reproduced
+    static final String SEED_PARAMETER = "seed";
+    // Settings parameter: true draws the first offers with a probability proportional to their utility value
+    static final String WEIGHTED_SAMPLING_PARAMETER = "weightedSampling";
+    // Settings parameters: bounds of the search for the mutation of the offer, per turn
+    static final String MUTATION_COMBINATIONS_PARAMETER = "mutationCombinations";
+    static final String MUTATION_BUDGET_PARAMETER = "mutationBudgetMicros";
+    private static final long DEFAULT_MUTATION_COMBINATIONS = 4096;
+    private static final long DEFAULT_MUTATION_BUDGET = 2000;
+    // Bids mutated per turn: the selected one and its two neighbours on the Pareto frontier
+    private static final int MUTATION_BASES = 3;
+    // Settings parameters: names of the BOA components, see BiddingStrategy, AcceptanceStrategy and ConcessionStrategy
+    static final String BIDDING_PARAMETER = "bidding";
+    static final String ACCEPTANCE_PARAMETER = "acceptance";
+    static final String CONCESSION_PARAMETER = "concession";
+
     // ID of our agent
     private PartyId partyId;
 
@@ -44,8 +99,25 @@ public class MyAgent extends DefaultParty {
 
     protected ProfileInterface profileInterface;
     private Profile profile;
-    // Utility value of all possible bids according to our profile
-    private HashMap<Bid, BigDecimal> bidsUtilityMap = new HashMap<>();
+    // All possible bids sorted by their utility value according to our profile, memory-mapped unless disabled
+    private UtilityIndex bidIndex;
+    // File of the bid index when it is kept off the heap, null otherwise
+    private Path indexFile;
+    // Encodes the bids of the domain as one value ordinal per issue
+    private BidCodec codec;
+    // Double precision utility function, only available if the profile is LinearAdditive
+    private LinearAdditiveEvaluator evaluator;
+    // Bid index and opponent statistics of the previous sessions with the same profile, null if not available
+    private PersistentState persistentState;
+    private File persistentFile;
+    // True if the index is the one of the persistent state, which then does not need to be written again
+    private boolean indexLoaded;
+    // File the events of the session are recorded to, null if not given
+    private File negotiationDataFile;
+    // Records the session to the negotiationdata file, null if there is none or the profile is not LinearAdditive
+    private SessionRecorder recorder;
+    // Number of best bids kept in the index, or PersistentState.COMPLETE if the index holds all bids
+    private int indexCapacity;
 
     private Progress progress;
     // Current time in the negotiation
@@ -53,20 +125,63 @@ public class MyAgent extends DefaultParty {
 
     // Last received bid from the opponent
     private Bid lastReceivedBid = null;
-    // History of the received offers during the negotiation session
-    private List<Bid> receivedOffers = new ArrayList<>();
+    // History of the received offers during the negotiation session, stored in encoded form
+    private OfferHistory receivedOffers;
+    // Frequency model of the opponent, updated with each offer of the opponent
+    private OpponentModel opponentModel;
+    // Pareto frontier of the indexed bids against the opponent model
+    private ParetoFrontier paretoFrontier;
+    // Encoded form of the bid being offered, reused in each round
+    private int[] offerCodes;
+    // Encoded bids the mutation starts from and their utility values, the first one is offerCodes
+    private int[][] mutationBases;
+    private double[] mutationUtilities;
+    // Chooses the mutation of the offer, null if the profile is not LinearAdditive
+    private MutationEngine mutationEngine;
+    // BOA components, resolved once in init(), so that each call site only ever sees one implementation
+    private BiddingStrategy bidding;
+    private AcceptanceStrategy acceptance;
+    private ConcessionStrategy concession;
+    // Chooses how much work a turn can afford and sends a fallback offer when the time runs out
+    private TurnScheduler turnScheduler;
+    // Replay only: limit of the mutation search of the next turn, 0 to use the time budget
+    private int nextMutationLimit = 0;
+    // Last offer selected by a full search, offered when there is no time for a search
+    private Bid cachedCandidate;
+    // Prepares the selection of the next offer on a background thread, null if disabled
+    private OfferSpeculation speculation;
+    // Time of the previous turn, to predict the time of the next turn
+    private double previousTime = 0.0;
 
-    private final Random random = new Random();
+    private Random random = new Random();
+    // Draws the offers of the first rounds from the acceptable bids of the index
+    private BidSampler sampler;
+    private boolean weightedSampling;
+    // Latency histograms of init(), the turns and their phases
+    private final TurnMetrics metrics = new TurnMetrics();
+    // Null if the metricsFile parameter is not set
+    private Path metricsFile;
+    // Passes the log records of the session to the Reporter on a background thread
+    private AsyncReporter asyncReporter;
     // Minimum utility value of a bid that the agent offers or accepts.
     private double acceptableUtilityValue = 1.0;
+    // Gives the current time to the progress and the deadline of the turn
+    private final Clock clock;
 
 
     public MyAgent() {
+        this.clock = Clock.systemUTC();
     }
 
     public MyAgent(Reporter reporter) {
+        this(reporter, Clock.systemUTC());
+    }
+
+    // A virtual clock lets tests run a session with a deadline in time faster than real time
+    public MyAgent(Reporter reporter, Clock clock) {
         // Reporter is used for debugging
         super(reporter);
+        this.clock = clock;
     }
 
     @Override
@@ -74,11 +189,27 @@ public class MyAgent extends DefaultParty {
         try {
             if (info instanceof Settings) {
                 Settings settings = (Settings) info;
-                init(settings);
+                if (LEARN_PROTOCOL.equals(String.valueOf(settings.getProtocol().getURI()))) {
+                    learn(settings);
+                } else {
+                    init(settings);
+                }
             } else if (info instanceof ActionDone) {
                 Action action = ((ActionDone) info).getAction();
+                record(action);
                 if (action instanceof Offer) {
                     this.lastReceivedBid = ((Offer) action).getBid();
+                    // Our own offers are also informed, only the offers of the opponent are learned from
+                    if (!action.getActor().equals(this.partyId)) {
+                        if (this.acceptance != null) {
+                            this.acceptance.observe(getUtility(this.lastReceivedBid));
+                        }
+                        if (this.opponentModel != null) {
+                            // The model may be in use by the preparation of our next offer
+                            joinSpeculation();
+                            this.opponentModel.update(this.lastReceivedBid);
+                        }
+                    }
                 }
             } else if (info instanceof YourTurn) {
                 if (progress instanceof ProgressRounds) {
@@ -86,13 +217,39 @@ public class MyAgent extends DefaultParty {
                 }
                 myTurn();
             } else if (info instanceof Finished) {
-                getReporter().log(Level.INFO, "Final outcome:" + info);
+                log(Level.INFO, () -> "Final outcome:" + info);
+                joinSpeculation();
+                reportMetrics();
+                if (this.recorder != null) {
+                    this.recorder.finished(((Finished) info).getAgreements().getMap().get(this.partyId));
+                    closeRecorder();
+                }
+                savePersistentState();
+                if (this.asyncReporter != null) {
+                    this.asyncReporter.flush(1, TimeUnit.SECONDS);
+                }
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to handle info", e);
         }
     }
 
+    @Override
+    public void terminate() {
+        closeSpeculation();
+        closeRecorder();
+        deleteIndexFile();
+        if (this.turnScheduler != null) {
+            this.turnScheduler.close();
+            this.turnScheduler = null;
+        }
+        if (this.asyncReporter != null) {
+            this.asyncReporter.close();
+            this.asyncReporter = null;
+        }
+        super.terminate();
+    }
+
     @Override
     public Capabilities getCapabilities() {
         return new Capabilities(new HashSet<>(Arrays.asList("SAOP", "Learn")), Collections.singleton(Profile.class));
@@ -101,126 +258,631 @@ public class MyAgent extends DefaultParty {
     @Override
     public String getDescription() {
         return "MyAgent offers bids having utility value greater than acceptableUtilityValue which is " +
-                "a time dependent variable. Before sending the selected bid, it replaces the value of a random issue " +
-                "with the issue value of the randomly selected bid from the history of the offered bids.";
+                "a time dependent variable. Once the opponent has made offers, it selects the Pareto optimal bid that is " +
+                "best for the opponent according to a frequency model. Before sending the selected bid, it replaces the value of one issue " +
+                "with the issue value of a bid from the history of the offered bids, choosing the replacement best for the " +
+                "opponent that keeps the utility value acceptable. The bidding, acceptance and concession components can be " +
+                "replaced through the bidding, acceptance and concession parameters.";
     }
 
     // Called at the beginning of the negotiation session
     private void init(Settings settings) throws IOException, DeploymentException {
+        long start = System.nanoTime();
+        closeSpeculation();
+        this.metrics.reset();
+        this.progress = settings.getProgress();
+        Parameters parameters = settings.getParameters();
+        if (this.asyncReporter != null) {
+            this.asyncReporter.close();
+        }
+        Object overflowPolicy = parameters.get(LOG_OVERFLOW_PARAMETER);
+        this.asyncReporter = new AsyncReporter(getReporter(),
+                (int) getLongParameter(parameters, LOG_BUFFER_PARAMETER, AsyncReporter.DEFAULT_CAPACITY),
+                overflowPolicy == null ? AsyncReporter.OverflowPolicy.DROP_AND_REPORT
+                        : AsyncReporter.OverflowPolicy.valueOf(overflowPolicy.toString()));
+        loadProfile(settings);
+        this.allBidsList = new AllBidsList(domain);
+        this.receivedOffers = new OfferHistory(this.codec);
+        this.opponentModel = new OpponentModel(this.codec);
+        this.offerCodes = new int[this.codec.getIssueCount()];
+        this.mutationBases = new int[MUTATION_BASES][];
+        this.mutationBases[0] = this.offerCodes;
+        for (int base = 1; base < MUTATION_BASES; base++) {
+            this.mutationBases[base] = new int[this.codec.getIssueCount()];
+        }
+        this.mutationUtilities = new double[MUTATION_BASES];
+        List<File> negotiationDataFiles = getNegotiationDataFiles(parameters);
+        this.negotiationDataFile = negotiationDataFiles.isEmpty() ? null : negotiationDataFiles.get(0);
+        closeRecorder();
+        if (this.negotiationDataFile != null && this.evaluator != null) {
+            try {
+                this.recorder = new SessionRecorder(this.negotiationDataFile, PersistentState.profileHash(
+                        this.profile.getName(), this.evaluator), this.codec, SessionRecorder.DEFAULT_BUFFER_SIZE);
+            } catch (IOException e) {
+                getReporter().log(Level.WARNING, "Failed to record the session to " + this.negotiationDataFile, e);
+            }
+        }
+
+        long streamingThreshold = getLongParameter(parameters, STREAMING_THRESHOLD_PARAMETER, DEFAULT_STREAMING_THRESHOLD);
+        boolean streaming = this.allBidsList.size().compareTo(BigInteger.valueOf(streamingThreshold)) > 0;
+        long topK = getLongParameter(parameters, STREAMING_TOP_K_PARAMETER, DEFAULT_STREAMING_TOP_K);
+        this.indexCapacity = streaming ? (int) Math.min(topK, Integer.MAX_VALUE) : PersistentState.COMPLETE;
+        this.bidIndex = null;
+        this.indexLoaded = false;
+        loadPersistentState(parameters);
+        if (this.persistentState != null) {
+            this.bidIndex = this.persistentState.getBidIndex(this.indexCapacity);
+            // What the opponents offered in previous sessions, until this opponent has offered enough
+            this.opponentModel.setPrior(this.persistentState.getStatistics());
+        }
+        if (this.bidIndex != null) {
+            // Same profile as in a previous session: its index is used instead of computing the utility values again
+            this.indexLoaded = true;
+            int size = this.bidIndex.size();
+            log(Level.INFO, () -> "Loaded the index of " + size + " bids from " + this.persistentFile);
+        } else if (streaming) {
+            // The bid space is too large to be kept in memory, only the best bids are kept
+            BigInteger size = this.allBidsList.size();
+            log(Level.INFO, () -> "Bid space size " + size + " exceeds " + streamingThreshold +
+                    ", streaming the bids and keeping the best " + topK);
+            this.bidIndex = streamBestBids(this.indexCapacity);
+        } else {
+            int parallelism = (int) getLongParameter(parameters, PARALLELISM_PARAMETER,
+                    Runtime.getRuntime().availableProcessors());
+            UtilityPrecomputation precomputation = new UtilityPrecomputation(this.allBidsList, this::getUtility,
+                    parallelism);
+            precomputation.compute();
+            log(Level.INFO, () -> "Precomputed " + precomputation.getBids().length + " utility values in " +
+                    precomputation.getElapsedMillis() + " ms on " + parallelism + " threads, sequential " +
+                    precomputation.getSequentialMillis() + " ms, speedup " +
+                    String.format("%.2f", precomputation.getSpeedup()));
+            this.bidIndex = BidIndex.sort(precomputation.getBids(), precomputation.getUtilities());
+        }
+        boolean offHeap = !"false".equals(String.valueOf(parameters.get(OFF_HEAP_INDEX_PARAMETER)));
+        if (offHeap && this.bidIndex instanceof BidIndex) {
+            // An index loaded from the persistent state is mapped already
+            moveIndexOffHeap();
+        } else if (!offHeap && this.bidIndex instanceof OffHeapBidIndex) {
+            // The persistent state maps its index, the bids are copied as the heap was asked for
+            this.bidIndex = BidIndex.copyOf(this.bidIndex);
+        }
+        this.paretoFrontier = new ParetoFrontier(this.bidIndex, this.codec,
+                (int) getLongParameter(parameters, PARETO_REFRESH_PARAMETER, DEFAULT_PARETO_REFRESH));
+        // Built at the first opponent offer: before it the model can not tell the bids apart
+        this.cachedCandidate = this.bidIndex.getMaxUtilityBid();
+        // Without a seed parameter a random one is used, it is recorded so that the session can be replayed
+        long seed = getLongParameter(parameters, SEED_PARAMETER, new Random().nextLong());
+        this.random = new Random(seed);
+        if (this.recorder != null) {
+            this.recorder.seed(seed);
+        }
+        this.sampler = new BidSampler(this.bidIndex, this.random);
+        this.weightedSampling = "true".equals(String.valueOf(parameters.get(WEIGHTED_SAMPLING_PARAMETER)));
+        this.mutationEngine = this.evaluator == null ? null : new MutationEngine(this.evaluator, this.opponentModel,
+                (int) getLongParameter(parameters, MUTATION_COMBINATIONS_PARAMETER, DEFAULT_MUTATION_COMBINATIONS),
+                TimeUnit.MICROSECONDS.toNanos(getLongParameter(parameters, MUTATION_BUDGET_PARAMETER,
+                        DEFAULT_MUTATION_BUDGET)));
+        this.bidding = createBidding(parameters.get(BIDDING_PARAMETER));
+        this.acceptance = createAcceptance(parameters.get(ACCEPTANCE_PARAMETER));
+        this.concession = createConcession(parameters.get(CONCESSION_PARAMETER));
+        this.previousTime = 0.0;
+        // Only the Pareto search uses the prepared offers
+        boolean speculate = !"false".equals(String.valueOf(parameters.get(SPECULATION_PARAMETER)));
+        if (speculate && this.bidding instanceof ParetoBidding) {
+            this.speculation = new OfferSpeculation(this.paretoFrontier, this.opponentModel);
+        }
+        if (this.turnScheduler != null) {
+            this.turnScheduler.close();
+        }
+        this.turnScheduler = new TurnScheduler(getLongParameter(parameters, SAFETY_MARGIN_PARAMETER, DEFAULT_SAFETY_MARGIN),
+                action -> getConnection().send(action),
+                e -> getReporter().log(Level.WARNING, "Failed to send the fallback action", e), this.clock);
+
+        Object metricsFileParameter = parameters.get(METRICS_FILE_PARAMETER);
+        this.metricsFile = metricsFileParameter != null ? Paths.get(metricsFileParameter.toString()) : null;
+        this.metrics.record(TurnMetrics.Phase.INIT, System.nanoTime() - start);
+    }
+
+    private BiddingStrategy createBidding(Object name) {
+        if (name == null || "pareto".equals(name)) {
+            return new ParetoBidding();
+        } else if ("timeDependent".equals(name)) {
+            return new TimeDependentBidding(this.bidIndex);
+        }
+        throw new IllegalArgumentException("Unknown " + BIDDING_PARAMETER + " " + name);
+    }
+
+    private static AcceptanceStrategy createAcceptance(Object name) {
+        if (name == null || "threshold".equals(name)) {
+            return new ThresholdAcceptance();
+        } else if ("combi".equals(name)) {
+            return new CombiAcceptance(CombiAcceptance.DEFAULT_FINAL_PHASE);
+        }
+        throw new IllegalArgumentException("Unknown " + ACCEPTANCE_PARAMETER + " " + name);
+    }
+
+    private static ConcessionStrategy createConcession(Object name) {
+        if (name == null || "linear".equals(name)) {
+            return new LinearConcession();
+        } else if ("boulware".equals(name)) {
+            return new TimeDependentConcession(TimeDependentConcession.BOULWARE);
+        } else if ("conceder".equals(name)) {
+            return new TimeDependentConcession(TimeDependentConcession.CONCEDER);
+        }
+        throw new IllegalArgumentException("Unknown " + CONCESSION_PARAMETER + " " + name);
+    }
+
+    // Reads the profile and builds the codec and the evaluator, none of which enumerates the bid space
+    private void loadProfile(Settings settings) throws IOException, DeploymentException {
         this.profileInterface = ProfileConnectionFactory.create(settings.getProfile().getURI(), getReporter());
         this.partyId = settings.getID();
-        this.progress = settings.getProgress();
         try {
             this.profile = this.profileInterface.getProfile();
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
         this.domain = this.profile.getDomain();
-        this.allBidsList = new AllBidsList(domain);
-        for(Bid bid:this.allBidsList){
-            this.bidsUtilityMap.put(bid, ((UtilitySpace) this.profile).getUtility(bid));
+        this.codec = new BidCodec(this.domain);
+        this.evaluator = null;
+        if (this.profile instanceof LinearAdditive) {
+            this.evaluator = new LinearAdditiveEvaluator((LinearAdditive) this.profile, this.codec);
+        }
+    }
+
+    /*
+     * Learn phase: streams the negotiationdata files of the previous sessions into the opponent statistics
+     * of the persistent state and writes them back. The bid space is not enumerated and no index is built;
+     * the stored index is left as it is in the file. Files of other profiles and unreadable files are skipped.
+     */
+    private void learn(Settings settings) throws IOException, DeploymentException {
+        closeSpeculation();
+        loadProfile(settings);
+        Parameters parameters = settings.getParameters();
+        loadPersistentState(parameters);
+        if (this.persistentState != null) {
+            int folded = 0;
+            for (File file : getNegotiationDataFiles(parameters)) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                try {
+                    if (NegotiationData.fold(file, this.persistentState.getProfileHash(), this.codec,
+                            this.persistentState.getStatistics())) {
+                        folded++;
+                    }
+                } catch (IOException e) {
+                    getReporter().log(Level.WARNING, "Failed to read the negotiation data " + file, e);
+                }
+            }
+            int foldedFiles = folded;
+            long sessions = this.persistentState.getStatistics().getSessionCount();
+            log(Level.INFO, () -> "<MyAgent>: Learned from " + foldedFiles + " sessions, " + sessions + " in total");
+            try {
+                this.persistentState.write(this.persistentFile);
+            } catch (IOException e) {
+                getReporter().log(Level.WARNING, "Failed to write the persistent state to " + this.persistentFile, e);
+            }
+        }
+        getConnection().send(new LearningDone(this.partyId));
+    }
+
+    // Files of the negotiationdata parameter, which is a single UUID in SAOP and a list of UUIDs in Learn
+    private static List<File> getNegotiationDataFiles(Parameters parameters) {
+        Object value = parameters.get(NEGOTIATION_DATA_PARAMETER);
+        List<File> files = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object uuid : (List<?>) value) {
+                files.add(new FileLocation(UUID.fromString(uuid.toString())).getFile());
+            }
+        } else if (value != null) {
+            files.add(new FileLocation(UUID.fromString(value.toString())).getFile());
+        }
+        return files;
+    }
+
+    // Replaces the heap index by a memory-mapped copy, so that its bids can be garbage collected
+    private void moveIndexOffHeap() {
+        deleteIndexFile();
+        Path file = Paths.get(System.getProperty("java.io.tmpdir"), "geniusweb",
+                "MyAgent-" + this.partyId + "-" + UUID.randomUUID() + ".index");
+        try {
+            this.bidIndex = OffHeapBidIndex.create(file, this.bidIndex, this.codec);
+            this.indexFile = file;
+            file.toFile().deleteOnExit();
+        } catch (IOException e) {
+            getReporter().log(Level.WARNING, "Failed to map the bid index, keeping it on the heap", e);
+            file.toFile().delete();
+        }
+    }
+
+    // The mapping stays valid after the file is deleted, until the index is garbage collected
+    private void deleteIndexFile() {
+        if (this.indexFile != null) {
+            this.indexFile.toFile().delete();
+            this.indexFile = null;
+        }
+    }
+
+    /*
+     * Reads the persistentstate file if the parameter is given. The state is only kept for LinearAdditive
+     * profiles, as they are the only ones that can be hashed without evaluating the bids. A missing,
+     * unreadable or other profile's file results in a new empty state.
+     */
+    private void loadPersistentState(Parameters parameters) {
+        this.persistentState = null;
+        this.persistentFile = null;
+        Object persistentStateParameter = parameters.get(PERSISTENT_STATE_PARAMETER);
+        if (persistentStateParameter == null || this.evaluator == null) {
+            return;
+        }
+        this.persistentFile = new FileLocation(UUID.fromString(persistentStateParameter.toString())).getFile();
+        long profileHash = PersistentState.profileHash(this.profile.getName(), this.evaluator);
+        try {
+            this.persistentState = PersistentState.read(this.persistentFile, profileHash, this.codec);
+        } catch (IOException e) {
+            getReporter().log(Level.WARNING, "Failed to read the persistent state, starting from scratch", e);
+        }
+        if (this.persistentState == null) {
+            this.persistentState = new PersistentState(profileHash, this.codec);
+        }
+    }
+
+    // Records an action informed by the protocol, ours or the opponent's
+    private void record(Action action) {
+        if (this.recorder == null) {
+            return;
+        }
+        byte party = action.getActor().equals(this.partyId) ? NegotiationData.US : NegotiationData.OPPONENT;
+        if (action instanceof Offer) {
+            this.recorder.offer(party, ((Offer) action).getBid());
+        } else if (action instanceof Accept) {
+            this.recorder.accept(party, ((Accept) action).getBid());
+        } else if (action instanceof EndNegotiation) {
+            this.recorder.end(party);
+        }
+    }
+
+    // Writes the rest of the recorded session, a failure to write does not fail the session
+    private void closeRecorder() {
+        if (this.recorder == null) {
+            return;
+        }
+        try {
+            this.recorder.close();
+        } catch (IOException e) {
+            getReporter().log(Level.WARNING, "Failed to write the negotiation data to " + this.negotiationDataFile, e);
+        }
+        this.recorder = null;
+    }
+
+    // Stores the index and the opponent statistics of this session, a failure to write does not fail the session
+    private void savePersistentState() {
+        if (this.persistentState == null) {
+            return;
+        }
+        if (!this.indexLoaded) {
+            this.persistentState.setBidIndex(this.bidIndex, this.indexCapacity);
+        }
+        if (this.negotiationDataFile == null) {
+            // Without negotiationdata there is no Learn phase, the statistics are updated right away
+            this.persistentState.getStatistics().add(this.opponentModel);
+        }
+        try {
+            this.persistentState.write(this.persistentFile);
+        } catch (IOException e) {
+            getReporter().log(Level.WARNING, "Failed to write the persistent state to " + this.persistentFile, e);
+        }
+    }
+
+    // Package-private so that the tests can check what is kept between the sessions
+    PersistentState getPersistentState() {
+        return this.persistentState;
+    }
+
+    // Logs the latency summary and writes it to the metrics file, a failure to write does not fail the session
+    private void reportMetrics() {
+        for (String line : this.metrics.getSummary()) {
+            log(Level.INFO, () -> "<MyAgent>: Latency " + line);
+        }
+        if (this.speculation != null) {
+            long hits = this.speculation.getHits();
+            long misses = this.speculation.getMisses();
+            log(Level.INFO, () -> "<MyAgent>: Prepared offers used: " + hits + ", selected again: " + misses);
+        }
+        if (this.turnScheduler != null) {
+            long fallbackCount = this.turnScheduler.getFallbackCount();
+            log(Level.INFO, () -> "<MyAgent>: Fallback offers sent at the deadline: " + fallbackCount);
+        }
+        if (this.metricsFile == null) {
+            return;
+        }
+        try {
+            this.metrics.writeCsv(this.metricsFile);
+        } catch (IOException e) {
+            getReporter().log(Level.WARNING, "Failed to write the latency metrics to " + this.metricsFile, e);
+        }
+    }
+
+    private void joinSpeculation() {
+        if (this.speculation != null) {
+            this.speculation.join();
+        }
+    }
+
+    private void closeSpeculation() {
+        if (this.speculation != null) {
+            this.speculation.close();
+            this.speculation = null;
+        }
+    }
+
+    // Prepares the selection of the next offer for the time predicted from the time between the last two turns
+    private void startSpeculation() {
+        if (this.speculation == null) {
+            return;
+        }
+        double nextTime = Math.min(1.0, this.time + Math.max(0.0, this.time - this.previousTime));
+        this.speculation.start(this.concession.getAcceptableUtility(nextTime));
+    }
+
+    // Package-private so that the tests can inspect the speculation
+    OfferSpeculation getSpeculation() {
+        return this.speculation;
+    }
+
+    // Package-private so that the tests can check where the index is kept
+    UtilityIndex getBidIndex() {
+        return this.bidIndex;
+    }
+
+    // Package-private so that the tests can inspect the frontier the offers are selected from
+    ParetoFrontier getParetoFrontier() {
+        return this.paretoFrontier;
+    }
+
+    // Package-private so that the tests can inspect the recorded latencies
+    TurnMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    // Enumerates the bid space lazily and computes the utility values on the fly, keeping only the topK best bids
+    private BidIndex streamBestBids(int topK) {
+        TopBidsCollector collector = new TopBidsCollector(topK);
+        for (Bid bid : this.allBidsList) {
+            collector.offer(bid, getUtility(bid));
         }
-        this.bidsUtilityMap = sortBidsByUtility(this.bidsUtilityMap);
+        return collector.toBidIndex();
     }
 
-    // Sorting the bidsUtilityMap according to their utility value (ascending order)
-    private LinkedHashMap<Bid, BigDecimal> sortBidsByUtility(HashMap<Bid, BigDecimal> utilityMap)
-    {
-        List<Map.Entry<Bid, BigDecimal>> list = new LinkedList<>(utilityMap.entrySet());
-        Collections.sort(list, Comparator.comparing(Map.Entry::getValue));
-        LinkedHashMap<Bid, BigDecimal> sortedHashMap = new LinkedHashMap<>();
-        for (Map.Entry<Bid, BigDecimal> tuple : list) {
-            sortedHashMap.put(tuple.getKey(), tuple.getValue());
+    // Reads a numeric parameter of the Settings, returns defaultValue if the parameter is not given
+    private static long getLongParameter(Parameters parameters, String name, long defaultValue) {
+        Object value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number but is " + value, e);
         }
-        return sortedHashMap;
     }
 
     //This function is called when it's our turn so that we can take an action.
     private void myTurn() throws IOException {
+        long turnStart = System.nanoTime();
         // Logging the process
-        getReporter().log(Level.INFO, "<MyAgent>: It's my turn!");
+        log(Level.INFO, () -> "<MyAgent>: It's my turn!");
         // Increasing the round count
-        this.time = progress.get(System.currentTimeMillis());
-        this.acceptableUtilityValue = 0.7 + (1 - this.time) * 0.3;
-        getReporter().log(Level.INFO, "Time:" + this.time);
-        getReporter().log(Level.INFO, "Acceptable Utility Value:" + this.acceptableUtilityValue);
+        long now = this.clock.millis();
+        this.previousTime = this.time;
+        this.time = progress.get(now);
+        if (this.recorder != null) {
+            this.recorder.turn(this.time);
+        }
+        this.acceptableUtilityValue = this.concession.getAcceptableUtility(this.time);
+        double time = this.time;
+        double acceptableUtilityValue = this.acceptableUtilityValue;
+        log(Level.INFO, () -> "Time:" + time);
+        log(Level.INFO, () -> "Acceptable Utility Value:" + acceptableUtilityValue);
 
         // First round: lastReceivedBid == null
         if(lastReceivedBid != null) {
             this.receivedOffers.add(this.lastReceivedBid);
-            getReporter().log(Level.INFO, "Received Bid:" + lastReceivedBid.toString());
+            Bid receivedBid = this.lastReceivedBid;
+            log(Level.INFO, () -> "Received Bid:" + receivedBid.toString());
         }
 
         Action action = null;
-        if (isAcceptable(lastReceivedBid)) {
-            // Action of acceptance
+        long start = System.nanoTime();
+        boolean acceptable = isAcceptable(lastReceivedBid);
+        this.metrics.record(TurnMetrics.Phase.IS_ACCEPTABLE, System.nanoTime() - start);
+        long budgetMillis = this.turnScheduler.getBudgetMillis(this.progress, now);
+        if (acceptable) {
+            // Action of acceptance, it costs nothing so it is sent even inside the safety margin, without watchdog
             action = new Accept(partyId, lastReceivedBid);
-            getReporter().log(Level.INFO, "<MyAgent>: I accept the offer.");
+            this.turnScheduler.startTurn(Long.MAX_VALUE, action);
+            log(Level.INFO, () -> "<MyAgent>: I accept the offer.");
+        } else {
+            // From here on, the cached candidate is offered if the search does not finish before the safety margin
+            Offer fallback = new Offer(partyId, this.cachedCandidate);
+            this.turnScheduler.startTurn(budgetMillis, fallback);
+            if (this.turnScheduler.plan(budgetMillis, this.metrics.getHistogram(TurnMetrics.Phase.MAKE_AN_OFFER)
+                    .getMax()) == TurnScheduler.Strategy.FULL_SEARCH) {
+                start = System.nanoTime();
+                action = makeAnOffer();
+                this.metrics.record(TurnMetrics.Phase.MAKE_AN_OFFER, System.nanoTime() - start);
+            } else {
+                // Not enough time left for a search
+                action = fallback;
+                log(Level.INFO, () -> "<MyAgent>: No time to search, offering the cached bid: " + fallback.getBid());
+            }
+        }
+        start = System.nanoTime();
+        if (this.turnScheduler.complete(action)) {
+            if (action instanceof Offer) {
+                this.cachedCandidate = ((Offer) action).getBid();
+            }
         } else {
-            action = makeAnOffer();
+            log(Level.WARNING, () -> "<MyAgent>: The turn took too long, the cached bid was offered at the deadline");
         }
-        getConnection().send(action);
+        long end = System.nanoTime();
+        if (!acceptable) {
+            startSpeculation();
+        }
+        this.nextMutationLimit = 0;
+        this.metrics.record(TurnMetrics.Phase.SEND, end - start);
+        this.metrics.record(TurnMetrics.Phase.MY_TURN, end - turnStart);
     }
 
-    private boolean isAcceptable(Bid bid) {
+    /*
+     * Replay only: the mutation search of the next turn stops after the given number of combinations, as
+     * recorded in a CUT event, or Integer.MAX_VALUE for the bound on the combinations only, and does not
+     * read the clock, so that the turn repeats the recorded one on any machine.
+     */
+    void limitNextMutation(int combinations) {
+        this.nextMutationLimit = combinations;
+    }
+
+    // Package-private so that the benchmarks can call it directly
+    boolean isAcceptable(Bid bid) {
         // First round: lastReceivedBid == null
         if (bid == null)
             return false;
-        // Returns true if utility value of the bid is greater than acceptable value
-        return ((UtilitySpace) this.profile).getUtility(bid).doubleValue() > this.acceptableUtilityValue;
+        return this.acceptance.isAcceptable(getUtility(bid), this.acceptableUtilityValue, this.time);
+    }
+
+    // The message is formatted on the background thread of the AsyncReporter, once init() has created it
+    private void log(Level level, Supplier<String> message) {
+        if (this.asyncReporter != null) {
+            this.asyncReporter.log(level, message);
+        } else {
+            getReporter().log(level, message.get());
+        }
+    }
+
+    // Utility value of the bid, computed by the compiled evaluator when the profile is LinearAdditive
+    private double getUtility(Bid bid) {
+        if (this.evaluator != null) {
+            return this.evaluator.getUtility(bid);
+        }
+        return ((UtilitySpace) this.profile).getUtility(bid).doubleValue();
+    }
+
+    // Package-private so that the benchmarks can call it directly
+    Offer makeAnOffer() {
+        // Returns an offering action with the bid selected
+        return new Offer(partyId, this.bidding.chooseBid(this.acceptableUtilityValue));
+    }
+
+    // The default bidding strategy: the search of the Pareto frontier and the mutation of the offer below
+    private final class ParetoBidding implements BiddingStrategy {
+        @Override
+        public Bid chooseBid(double threshold) {
+            return chooseParetoBid(threshold);
+        }
     }
 
-    private Offer makeAnOffer() {
+    // Adds the frontier bid of the given rank to the bases of the mutation, if there is one, returns the new count
+    private int addMutationBase(int baseCount, int rank) {
+        if (rank < 0 || rank >= this.paretoFrontier.size()) {
+            return baseCount;
+        }
+        int position = this.paretoFrontier.getIndexPosition(rank);
+        this.bidIndex.copyCodes(position, this.codec, this.mutationBases[baseCount]);
+        this.mutationUtilities[baseCount] = this.bidIndex.getUtility(position);
+        return baseCount + 1;
+    }
+
+    private Bid chooseParetoBid(double threshold) {
+        long start = System.nanoTime();
         Bid offeredBid;
-        // Getting the list of the issues defined in the domain of the session
-        Set<String> issuesList = this.domain.getIssues();
-        List<Bid> acceptableBids = new ArrayList();
-        for(Bid bid: this.allBidsList){
-            double bidUtility = ((UtilitySpace) this.profile).getUtility(bid).doubleValue();
-            if (bidUtility >= this.acceptableUtilityValue){
-                acceptableBids.add(bid);
+        // Bids having utility value >= threshold are the slice [firstAcceptableIndex, size) of the index
+        int firstAcceptableIndex = this.bidIndex.ceilingIndex(threshold);
+        // The selected bid is only addressed by its position, so that no Bid is created for it
+        int selectedIndex;
+        // Rank of the selected bid in the Pareto frontier, -1 if it was not selected from the frontier
+        int rank = -1;
+        if (this.opponentModel.getOfferCount() > 0) {
+            // Selecting the Pareto optimal bid that is best for the opponent among the acceptable ones,
+            // as prepared during the opponent's turn if that is still valid
+            joinSpeculation();
+            this.paretoFrontier.refreshIfStale(this.opponentModel);
+            rank = this.speculation != null ? this.speculation.take(threshold) : -1;
+            if (rank < 0) {
+                rank = this.paretoFrontier.ceilingRank(threshold);
             }
+            selectedIndex = this.paretoFrontier.getIndexPosition(rank);
+        } else if (firstAcceptableIndex == this.bidIndex.size()) {
+            // If there is no bid having utility value >= threshold, the bid having highest utility value
+            selectedIndex = this.bidIndex.size() - 1;
+        } else {
+            // Selecting a random acceptable bid in order not to select the same bid to offer in each round
+            selectedIndex = this.weightedSampling ? this.sampler.sampleWeighted(firstAcceptableIndex, this.bidIndex.size())
+                    : this.sampler.sampleUniform(firstAcceptableIndex, this.bidIndex.size());
         }
-        // If there is no bid having utility value >= acceptableUtilityValue
-        if(acceptableBids.size() == 0){
-            Object[] utilitySortedBidList = this.bidsUtilityMap.keySet().toArray();
-            // Getting the bid having highest utility value
-            Bid maxUtilityBid = (Bid) utilitySortedBidList[utilitySortedBidList.length-1];
-            acceptableBids.add(maxUtilityBid);
-        }
-        // Shuffle the bids in order not to select the same bid to offer in each round
-        Collections.shuffle(acceptableBids);
-        Bid selectedBid = acceptableBids.get(0);
+
+        long selected = System.nanoTime();
+        this.metrics.record(TurnMetrics.Phase.CANDIDATE_SELECTION, selected - start);
+
+        // Utility value of the offered bid, read from the index and updated by the mutation
+        double offeredUtility = this.bidIndex.getUtility(selectedIndex);
 
         // First round
         if(this.receivedOffers.size() == 0){
-            offeredBid = selectedBid;
+            offeredBid = this.bidIndex.getBid(selectedIndex);
         }
         else {
-            // Hash map of the selected bid
-            HashMap<String, Value> createdBid = new HashMap<>();
-            // Copying issue value of the selected bid to the hashmap
-            for (String issue : issuesList) {
-                Value issueValue = selectedBid.getValue(issue);
-                createdBid.put(issue, issueValue);
-            }
+            // Value ordinals of the selected bid, read from the index
+            this.bidIndex.copyCodes(selectedIndex, this.codec, this.offerCodes);
 
-            // From the offered bids (by opponent) history, a bid selected randomly
-            int selectedOfferedBidIndex = this.random.nextInt(this.receivedOffers.size());
-            Bid selectedOfferedBid = this.receivedOffers.get(selectedOfferedBidIndex);
+            if (this.mutationEngine != null) {
+                // The value of one issue is replaced with the value of an offered bid (by opponent), choosing the
+                // combination best for the opponent among those keeping the offer acceptable. The neighbours of
+                // the selected bid on the frontier are mutated too, under the same budget
+                this.mutationUtilities[0] = offeredUtility;
+                int baseCount = 1;
+                if (rank >= 0) {
+                    baseCount = addMutationBase(baseCount, rank + 1);
+                    baseCount = addMutationBase(baseCount, rank - 1);
+                }
+                offeredUtility = this.mutationEngine.mutate(this.mutationBases, this.mutationUtilities, baseCount,
+                        threshold, this.receivedOffers, this.random, this.nextMutationLimit);
+                if (this.recorder != null && this.mutationEngine.isLastCutByTime()) {
+                    // The cut depends on the speed of the machine, it is recorded so that a replay can repeat it
+                    this.recorder.cut(this.mutationEngine.getLastCombinationCount());
+                }
+                // The bid is only converted back to a Bid to be offered
+                offeredBid = this.codec.decode(this.offerCodes);
+            } else {
+                // From the offered bids (by opponent) history, a bid selected randomly
+                int selectedOfferedBidIndex = this.random.nextInt(this.receivedOffers.size());
 
-            // From the issues defined in the domain, an issue selected randomly
-            int selectedIssueIndex = this.random.nextInt(issuesList.size());
-            String selectedIssue = (String) issuesList.toArray()[selectedIssueIndex];
+                // From the issues defined in the domain, an issue selected randomly
+                int selectedIssue = this.random.nextInt(this.codec.getIssueCount());
 
-            // Value of the selected issue in the created bid is replaced with the value of the selected offered bid
-            createdBid.put(selectedIssue, selectedOfferedBid.getValue(selectedIssue));
-            //The bid is created according to the hash map
-            offeredBid = new Bid(createdBid);
+                // Value of the selected issue is replaced with the value of the selected offered bid
+                int offeredValue = this.receivedOffers.getValueOrdinal(selectedOfferedBidIndex, selectedIssue);
+                if (offeredValue != BidCodec.MISSING) {
+                    this.offerCodes[selectedIssue] = offeredValue;
+                }
+                offeredBid = this.codec.decode(this.offerCodes);
+                double mutatedUtility = getUtility(offeredBid);
+                // The mutation is only kept if the offer stays acceptable, or does not get worse
+                if (mutatedUtility >= Math.min(offeredUtility, threshold)) {
+                    offeredUtility = mutatedUtility;
+                } else {
+                    offeredBid = this.bidIndex.getBid(selectedIndex);
+                }
+            }
+            this.metrics.record(TurnMetrics.Phase.MUTATION, System.nanoTime() - selected);
         }
 
-        getReporter().log(Level.INFO, "<MyAgent>: I am offering bid: " + offeredBid);
-        // Returns an offering action with the bid selected
-        return new Offer(partyId, offeredBid);
+        Bid loggedBid = offeredBid;
+        double loggedUtility = offeredUtility;
+        log(Level.INFO, () -> "<MyAgent>: I am offering bid: " + loggedBid + " with utility " + loggedUtility);
+        return offeredBid;
     }
 }
@@ -0,0 +1,242 @@
+package geniusweb.sampleagent;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/*
+ * Trace of one negotiation session, written by a SessionRecorder to the negotiationdata file of the
+ * session, folded into the opponent statistics in the Learn phase and replayed by SessionReplay. The file
+ * is binary, big-endian and append-only:
+ *
+ *   header  int magic, int version, long profile hash, int #issues, int #values per issue
+ *   events  until the end of the file, each one a byte type followed by
+ *             SEED      long seed of the random generator of the party
+ *             TURN      double time of our turn
+ *             CUT       int number of combinations after which the time budget stopped the mutation search
+ *                       of our turn, before our action
+ *             OFFER     byte party (US or OPPONENT), #issues int value ordinals, -1 for a missing issue
+ *             ACCEPT    byte party, #issues int value ordinals
+ *             END       byte party
+ *             FINISHED  byte 1 if there is an agreement, then the #issues int value ordinals of the agreement
+ *
+ * The Reader streams the file through a small buffer, one event at a time, so the memory used does not
+ * depend on the length of the session.
+ */
+
+public final class NegotiationData {
+
+    static final int MAGIC = 0x4D59414E;
+    static final int VERSION = 4;
+
+    // Event types
+    public static final byte TURN = 1;
+    public static final byte OFFER = 2;
+    public static final byte ACCEPT = 3;
+    public static final byte END = 4;
+    public static final byte FINISHED = 5;
+    public static final byte SEED = 6;
+    public static final byte CUT = 7;
+
+    // Parties of the events
+    public static final byte US = 0;
+    public static final byte OPPONENT = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private NegotiationData() {
+    }
+
+    /*
+     * Adds the offers of the opponent in the file to the statistics as one session. Returns false, adding
+     * nothing, if the file was written for another profile. Throws an IOException, adding nothing, if the
+     * file is truncated or not written by a SessionRecorder: the file is counted apart first, in O(#values)
+     * memory.
+     */
+    public static boolean fold(File file, long profileHash, BidCodec codec, OpponentStatistics statistics)
+            throws IOException {
+        try (Reader reader = Reader.open(file, profileHash, codec)) {
+            if (reader == null) {
+                return false;
+            }
+            OpponentStatistics session = new OpponentStatistics(codec);
+            session.add(1, 0);
+            while (reader.next()) {
+                if (reader.getType() != OFFER || reader.getParty() != OPPONENT) {
+                    continue;
+                }
+                int[] codes = reader.getCodes();
+                for (int i = 0; i < codes.length; i++) {
+                    if (codes[i] != BidCodec.MISSING) {
+                        session.addValueCount(i, codes[i], 1);
+                    }
+                }
+                session.add(0, 1);
+            }
+            statistics.add(session);
+            return true;
+        }
+    }
+
+    /*
+     * Reads the events of a file one at a time. The getters describe the event read by the last call of
+     * next(); getCodes() returns the same array for every event.
+     */
+    public static final class Reader implements Closeable {
+
+        private final File file;
+        private final DataInputStream in;
+        private final BidCodec codec;
+        private final int[] codes;
+        private byte type;
+        private byte party;
+        private double time;
+        private long seed;
+        private int combinations;
+        private boolean agreement;
+
+        private Reader(File file, DataInputStream in, BidCodec codec) {
+            this.file = file;
+            this.in = in;
+            this.codec = codec;
+            this.codes = new int[codec.getIssueCount()];
+        }
+
+        /*
+         * Opens the file and reads its header. Returns null if the file was written for another profile.
+         * Throws an IOException if the file was not written by a SessionRecorder.
+         */
+        public static Reader open(File file, long profileHash, BidCodec codec) throws IOException {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file.toPath()), BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a negotiation data file: " + file);
+                }
+                if (in.readLong() != profileHash || !readShape(in, codec)) {
+                    in.close();
+                    return null;
+                }
+                return new Reader(file, in, codec);
+            } catch (IOException e) {
+                in.close();
+                throw e instanceof EOFException ? new IOException("Truncated negotiation data file: " + file, e) : e;
+            }
+        }
+
+        // Reads the next event, returns false at the end of the file
+        public boolean next() throws IOException {
+            int read = this.in.read();
+            if (read < 0) {
+                return false;
+            }
+            try {
+                this.type = (byte) read;
+                switch (this.type) {
+                    case SEED:
+                        this.seed = this.in.readLong();
+                        break;
+                    case TURN:
+                        this.time = this.in.readDouble();
+                        break;
+                    case CUT:
+                        this.combinations = this.in.readInt();
+                        break;
+                    case OFFER:
+                    case ACCEPT:
+                        this.party = readParty();
+                        readCodes();
+                        break;
+                    case END:
+                        this.party = readParty();
+                        break;
+                    case FINISHED:
+                        this.agreement = this.in.readByte() == 1;
+                        if (this.agreement) {
+                            readCodes();
+                        }
+                        break;
+                    default:
+                        throw new IOException("Corrupt negotiation data file: " + this.file);
+                }
+                return true;
+            } catch (EOFException e) {
+                throw new IOException("Truncated negotiation data file: " + this.file, e);
+            }
+        }
+
+        public byte getType() {
+            return this.type;
+        }
+
+        // Party of an OFFER, ACCEPT or END event
+        public byte getParty() {
+            return this.party;
+        }
+
+        // Seed of a SEED event
+        public long getSeed() {
+            return this.seed;
+        }
+
+        // Number of combinations of a CUT event
+        public int getCombinations() {
+            return this.combinations;
+        }
+
+        // Time of a TURN event
+        public double getTime() {
+            return this.time;
+        }
+
+        // True if the FINISHED event has an agreement
+        public boolean hasAgreement() {
+            return this.agreement;
+        }
+
+        // Bid of an OFFER or ACCEPT event or the agreement of a FINISHED event, encoded by the codec
+        public int[] getCodes() {
+            return this.codes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+        private byte readParty() throws IOException {
+            byte value = this.in.readByte();
+            if (value != US && value != OPPONENT) {
+                throw new IOException("Corrupt negotiation data file: " + this.file);
+            }
+            return value;
+        }
+
+        private void readCodes() throws IOException {
+            for (int i = 0; i < this.codes.length; i++) {
+                int ordinal = this.in.readInt();
+                if (ordinal < BidCodec.MISSING || ordinal >= this.codec.getValueCount(i)) {
+                    throw new IOException("Corrupt negotiation data file: " + this.file);
+                }
+                this.codes[i] = ordinal;
+            }
+        }
+    }
+
+    // True if the number of issues and values of the file match the codec
+    private static boolean readShape(DataInputStream in, BidCodec codec) throws IOException {
+        if (in.readInt() != codec.getIssueCount()) {
+            return false;
+        }
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            if (in.readInt() != codec.getValueCount(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
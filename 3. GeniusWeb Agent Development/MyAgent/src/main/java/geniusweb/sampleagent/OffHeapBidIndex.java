@@ -0,0 +1,159 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Bid index kept in a memory-mapped file instead of the heap. The file holds the utilities of the
+ * bids in ascending order followed by the encoded bids: one long per bid if the codec can pack the
+ * bids, otherwise one int value ordinal per issue per bid. The garbage collector never sees the
+ * entries, and the queries used during a turn (ceilingIndex, getUtility, copyCodes) read the mapped
+ * memory without creating objects. Only getBid() creates a Bid, to be offered.
+ */
+
+public class OffHeapBidIndex implements UtilityIndex {
+
+    private final BidCodec codec;
+    private final int size;
+    private final DoubleBuffer utilities;
+    // Exactly one of both holds the bids, depending on codec.isPackable()
+    private final LongBuffer packedBids;
+    private final IntBuffer bids;
+
+    private OffHeapBidIndex(BidCodec codec, int size, ByteBuffer buffer) {
+        this.codec = codec;
+        this.size = size;
+        this.utilities = buffer.asDoubleBuffer();
+        // Through Buffer, as ByteBuffer.position(int) is only declared from Java 9 on
+        ((Buffer) buffer).position(size * Double.BYTES);
+        if (codec.isPackable()) {
+            this.packedBids = buffer.slice().asLongBuffer();
+            this.bids = null;
+        } else {
+            this.packedBids = null;
+            this.bids = buffer.slice().asIntBuffer();
+        }
+    }
+
+    // Writes the index into the file, replacing it, and maps the file
+    public static OffHeapBidIndex create(Path file, UtilityIndex index, BidCodec codec) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            write(out, index, codec);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return map(channel, 0, index.size(), codec);
+        }
+    }
+
+    // Maps an index of the given size written by write() at the position of the file
+    static OffHeapBidIndex map(FileChannel channel, long position, int size, BidCodec codec) throws IOException {
+        long length = byteSize(size, codec);
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Index of " + size + " bids is too large to be mapped");
+        }
+        if (position + length > channel.size()) {
+            throw new IOException("Index of " + size + " bids does not fit into the file");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return new OffHeapBidIndex(codec, size, buffer);
+    }
+
+    // Number of bytes of an index of the given size
+    static long byteSize(int size, BidCodec codec) {
+        long bidBytes = codec.isPackable() ? Long.BYTES : (long) Integer.BYTES * codec.getIssueCount();
+        return (long) size * (Double.BYTES + bidBytes);
+    }
+
+    // Writes the utilities and the encoded bids of the index, in the layout read by map()
+    static void write(DataOutputStream out, UtilityIndex index, BidCodec codec) throws IOException {
+        for (int n = 0; n < index.size(); n++) {
+            out.writeDouble(index.getUtility(n));
+        }
+        int[] codes = new int[codec.getIssueCount()];
+        for (int n = 0; n < index.size(); n++) {
+            index.copyCodes(n, codec, codes);
+            if (codec.isPackable()) {
+                out.writeLong(codec.pack(codes));
+            } else {
+                for (int code : codes) {
+                    out.writeInt(code);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double getUtility(int index) {
+        return this.utilities.get(index);
+    }
+
+    @Override
+    public int ceilingIndex(double threshold) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.utilities.get(mid) < threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public double getMaxUtility() {
+        return this.size == 0 ? Double.NaN : this.utilities.get(this.size - 1);
+    }
+
+    @Override
+    public Bid getBid(int index) {
+        int[] codes = new int[this.codec.getIssueCount()];
+        copyCodes(index, this.codec, codes);
+        return this.codec.decode(codes);
+    }
+
+    @Override
+    public Bid getMaxUtilityBid() {
+        return this.size == 0 ? null : getBid(this.size - 1);
+    }
+
+    // The codec must be the one the index was written with
+    @Override
+    public void copyCodes(int index, BidCodec codec, int[] codes) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of [0, " + this.size + ")");
+        }
+        if (this.packedBids != null) {
+            this.codec.unpack(this.packedBids.get(index), codes);
+        } else {
+            int issueCount = codes.length;
+            for (int i = 0; i < issueCount; i++) {
+                codes[i] = this.bids.get(index * issueCount + i);
+            }
+        }
+    }
+}
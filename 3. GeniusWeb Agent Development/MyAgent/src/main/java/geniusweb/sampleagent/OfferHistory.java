@@ -0,0 +1,173 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.Arrays;
+
+/*
+ * History of the bids offered by the opponent, stored in encoded form.
+ * Every distinct bid is stored once (interned): as a packed long when the domain allows it,
+ * otherwise as one int ordinal per issue. The history itself is a sequence of ids of distinct bids.
+ */
+
+public class OfferHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BidCodec codec;
+    private final int issueCount;
+    // Encoding scratch space, so that adding a bid that was offered before allocates nothing
+    private final int[] scratch;
+
+    // Distinct bids, packedBids is used if the codec can pack bids, otherwise codes (issueCount ints per bid)
+    private long[] packedBids;
+    private int[] codes;
+    private int distinctCount = 0;
+
+    // Open addressing hash table of distinct bid ids + 1, 0 marks an empty slot
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    // Ids of the distinct bids in the order they were offered
+    private int[] sequence = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    public OfferHistory(BidCodec codec) {
+        this.codec = codec;
+        this.issueCount = codec.getIssueCount();
+        this.scratch = new int[this.issueCount];
+        if (codec.isPackable()) {
+            this.packedBids = new long[INITIAL_CAPACITY];
+        } else {
+            this.codes = new int[INITIAL_CAPACITY * this.issueCount];
+        }
+    }
+
+    // Appends the bid to the history and returns the id of its distinct bid
+    public int add(Bid bid) {
+        this.codec.encode(bid, this.scratch);
+        int id = intern(this.scratch);
+        if (this.size == this.sequence.length) {
+            this.sequence = Arrays.copyOf(this.sequence, this.size * 2);
+        }
+        this.sequence[this.size++] = id;
+        return id;
+    }
+
+    // Number of offers in the history
+    public int size() {
+        return this.size;
+    }
+
+    // Number of distinct bids in the history
+    public int getDistinctCount() {
+        return this.distinctCount;
+    }
+
+    // Id of the distinct bid of the offer at the given position of the history
+    public int getId(int offer) {
+        return this.sequence[offer];
+    }
+
+    // Value ordinal of the issue in the offer at the given position of the history
+    public int getValueOrdinal(int offer, int issue) {
+        return getDistinctValueOrdinal(this.sequence[offer], issue);
+    }
+
+    // Value ordinal of the issue in the distinct bid of the given id, ids go from 0 to getDistinctCount() - 1
+    public int getDistinctValueOrdinal(int id, int issue) {
+        if (this.packedBids != null) {
+            return this.codec.unpack(this.packedBids[id], issue);
+        }
+        return this.codes[id * this.issueCount + issue];
+    }
+
+    // Copies the encoded offer at the given position of the history into target
+    public void copyOffer(int offer, int[] target) {
+        int id = this.sequence[offer];
+        if (this.packedBids != null) {
+            this.codec.unpack(this.packedBids[id], target);
+        } else {
+            System.arraycopy(this.codes, id * this.issueCount, target, 0, this.issueCount);
+        }
+    }
+
+    private int intern(int[] bidCodes) {
+        long packed = this.packedBids != null ? this.codec.pack(bidCodes) : 0;
+        int mask = this.table.length - 1;
+        int slot = hash(bidCodes, packed) & mask;
+        while (this.table[slot] != 0) {
+            int id = this.table[slot] - 1;
+            if (this.packedBids != null ? this.packedBids[id] == packed : sameCodes(id, bidCodes)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = store(bidCodes, packed);
+        this.table[slot] = id + 1;
+        // Keeping the load factor of the table at most 0.5
+        if (this.distinctCount * 2 > this.table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private int store(int[] bidCodes, long packed) {
+        int id = this.distinctCount++;
+        if (this.packedBids != null) {
+            if (id == this.packedBids.length) {
+                this.packedBids = Arrays.copyOf(this.packedBids, id * 2);
+            }
+            this.packedBids[id] = packed;
+        } else {
+            if ((id + 1) * this.issueCount > this.codes.length) {
+                this.codes = Arrays.copyOf(this.codes, this.codes.length * 2);
+            }
+            System.arraycopy(bidCodes, 0, this.codes, id * this.issueCount, this.issueCount);
+        }
+        return id;
+    }
+
+    private boolean sameCodes(int id, int[] bidCodes) {
+        int offset = id * this.issueCount;
+        for (int i = 0; i < this.issueCount; i++) {
+            if (this.codes[offset + i] != bidCodes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        this.table = new int[this.table.length * 2];
+        int mask = this.table.length - 1;
+        int[] bidCodes = new int[this.issueCount];
+        for (int id = 0; id < this.distinctCount; id++) {
+            long packed = 0;
+            if (this.packedBids != null) {
+                packed = this.packedBids[id];
+            } else {
+                System.arraycopy(this.codes, id * this.issueCount, bidCodes, 0, this.issueCount);
+            }
+            int slot = hash(bidCodes, packed) & mask;
+            while (this.table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = id + 1;
+        }
+    }
+
+    private int hash(int[] bidCodes, long packed) {
+        long h;
+        if (this.packedBids != null) {
+            h = packed;
+        } else {
+            h = 1;
+            for (int i = 0; i < this.issueCount; i++) {
+                h = 31 * h + bidCodes[i];
+            }
+        }
+        // Spreading the bits, so that bids differing in one issue do not cluster in the table
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
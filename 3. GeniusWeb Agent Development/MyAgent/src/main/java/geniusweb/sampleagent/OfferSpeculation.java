@@ -0,0 +1,125 @@
+package geniusweb.sampleagent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Prepares the selection of the next offer while the opponent is thinking. Right after our action is
+ * sent, start() rebuilds the Pareto frontier on a background thread if it would be stale at the next
+ * turn, and looks up the frontier bid for the threshold predicted for that turn. At the next turn,
+ * take() returns the prepared rank if it is still the right one for the actual threshold and the
+ * frontier was not rebuilt since, which is checked in constant time.
+ *
+ * The frontier and the opponent model are not thread-safe: the negotiation thread must call join()
+ * before it updates the model or uses the frontier. The Future of the task provides the handoff of
+ * the frontier between both threads.
+ */
+
+public class OfferSpeculation implements AutoCloseable {
+
+    // Result of a speculation, immutable
+    static final class Prepared {
+        final int rank;
+        final int builtAtOfferCount;
+
+        Prepared(int rank, int builtAtOfferCount) {
+            this.rank = rank;
+            this.builtAtOfferCount = builtAtOfferCount;
+        }
+    }
+
+    private final ParetoFrontier frontier;
+    private final OpponentModel model;
+    private final ExecutorService executor;
+
+    private Future<Prepared> pending;
+    private Prepared prepared;
+    private long hits = 0;
+    private long misses = 0;
+
+    public OfferSpeculation(ParetoFrontier frontier, OpponentModel model) {
+        this.frontier = frontier;
+        this.model = model;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "OfferSpeculation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Starts preparing the selection for the threshold predicted for the next turn
+    public void start(double predictedThreshold) {
+        join();
+        this.prepared = null;
+        this.pending = this.executor.submit(() -> {
+            // The opponent offers once more before our next turn
+            if (this.frontier.isStale(this.model.getOfferCount() + 1)) {
+                this.frontier.refresh(this.model);
+            }
+            return new Prepared(this.frontier.ceilingRank(predictedThreshold), this.frontier.getBuiltAtOfferCount());
+        });
+    }
+
+    // Waits for the running speculation, after which the frontier and the model can be used again
+    public void join() {
+        if (this.pending == null) {
+            return;
+        }
+        // The task can not be abandoned while it uses the frontier, so an interrupt only ends the wait afterwards
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    this.prepared = this.pending.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to prepare the next offer", e.getCause());
+        } finally {
+            this.pending = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * Frontier rank of the bid to offer for the threshold if the prepared one is still valid, -1 if the
+     * selection has to be done again. The prepared result is used at most once.
+     */
+    public int take(double threshold) {
+        join();
+        Prepared result = this.prepared;
+        this.prepared = null;
+        if (result == null) {
+            return -1;
+        }
+        if (result.builtAtOfferCount == this.frontier.getBuiltAtOfferCount()
+                && this.frontier.isCeilingRank(result.rank, threshold)) {
+            this.hits++;
+            return result.rank;
+        }
+        this.misses++;
+        return -1;
+    }
+
+    // Number of turns that used the prepared selection and that had to select again
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    @Override
+    public void close() {
+        join();
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,147 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+import java.util.Arrays;
+
+/*
+ * Frequency model of the opponent, updated incrementally with every bid the opponent offers.
+ * Values the opponent offers often are assumed to be good for the opponent, and issues whose
+ * value the opponent does not change between consecutive offers are assumed to be important.
+ * An update costs O(#issues) and never looks at the history again, queries take constant time
+ * per issue. The value counts of previous sessions against the same profile can be set as a prior,
+ * which weighs as PRIOR_OFFERS offers in the value utilities.
+ */
+
+public class OpponentModel {
+
+    // Weight added to an issue each time the opponent keeps its value unchanged
+    static final double WEIGHT_INCREMENT = 0.1;
+    // Number of offers the value frequencies of previous sessions weigh as
+    static final int PRIOR_OFFERS = 10;
+
+    private final BidCodec codec;
+    private final int issueCount;
+
+    // valueCounts[i][v]: number of offers having value v for issue i
+    private final int[][] valueCounts;
+    // Highest value count of each issue and the value having it
+    private final int[] maxCounts;
+    private final int[] mostFrequentValues;
+    // priorCounts[i][v]: frequency of value v for issue i in previous sessions times PRIOR_OFFERS
+    private final double[][] priorCounts;
+    // Highest prior plus value count of each issue, the value utilities are relative to it
+    private final double[] maxUtilityCounts;
+    // Unnormalized issue weights and their sum
+    private final double[] rawWeights;
+    private double rawWeightSum;
+
+    private final int[] previousCodes;
+    private final int[] currentCodes;
+    private int offerCount = 0;
+
+    public OpponentModel(BidCodec codec) {
+        this.codec = codec;
+        this.issueCount = codec.getIssueCount();
+        this.valueCounts = new int[this.issueCount][];
+        for (int i = 0; i < this.issueCount; i++) {
+            this.valueCounts[i] = new int[codec.getValueCount(i)];
+        }
+        this.maxCounts = new int[this.issueCount];
+        this.mostFrequentValues = new int[this.issueCount];
+        Arrays.fill(this.mostFrequentValues, BidCodec.MISSING);
+        this.priorCounts = new double[this.issueCount][];
+        for (int i = 0; i < this.issueCount; i++) {
+            this.priorCounts[i] = new double[codec.getValueCount(i)];
+        }
+        this.maxUtilityCounts = new double[this.issueCount];
+        // Without any information all issues are equally important
+        this.rawWeights = new double[this.issueCount];
+        Arrays.fill(this.rawWeights, 1.0);
+        this.rawWeightSum = this.issueCount;
+        this.previousCodes = new int[this.issueCount];
+        this.currentCodes = new int[this.issueCount];
+    }
+
+    // Sets the value frequencies of previous sessions on the same domain as the prior of the value utilities
+    public void setPrior(OpponentStatistics statistics) {
+        for (int i = 0; i < this.issueCount; i++) {
+            this.maxUtilityCounts[i] = 0;
+            for (int v = 0; v < this.priorCounts[i].length; v++) {
+                this.priorCounts[i][v] = PRIOR_OFFERS * statistics.getValueFrequency(i, v);
+                this.maxUtilityCounts[i] = Math.max(this.maxUtilityCounts[i],
+                        this.valueCounts[i][v] + this.priorCounts[i][v]);
+            }
+        }
+    }
+
+    public void update(Bid bid) {
+        this.codec.encode(bid, this.currentCodes);
+        update(this.currentCodes);
+    }
+
+    public void update(int[] codes) {
+        for (int i = 0; i < this.issueCount; i++) {
+            int ordinal = codes[i];
+            if (ordinal == BidCodec.MISSING) {
+                continue;
+            }
+            int count = ++this.valueCounts[i][ordinal];
+            if (count > this.maxCounts[i]) {
+                this.maxCounts[i] = count;
+                this.mostFrequentValues[i] = ordinal;
+            }
+            this.maxUtilityCounts[i] = Math.max(this.maxUtilityCounts[i], count + this.priorCounts[i][ordinal]);
+            if (this.offerCount > 0 && this.previousCodes[i] == ordinal) {
+                this.rawWeights[i] += WEIGHT_INCREMENT;
+                this.rawWeightSum += WEIGHT_INCREMENT;
+            }
+        }
+        System.arraycopy(codes, 0, this.previousCodes, 0, this.issueCount);
+        this.offerCount++;
+    }
+
+    public int getOfferCount() {
+        return this.offerCount;
+    }
+
+    // Estimated importance of the issue for the opponent, the weights of all issues sum up to 1
+    public double getIssueWeight(int issue) {
+        return this.rawWeights[issue] / this.rawWeightSum;
+    }
+
+    // Estimated utility of the value for the opponent in [0, 1], relative to the most offered value of the issue
+    public double getValueUtility(int issue, int ordinal) {
+        if (ordinal == BidCodec.MISSING || this.maxUtilityCounts[issue] == 0) {
+            return 0;
+        }
+        return (this.valueCounts[issue][ordinal] + this.priorCounts[issue][ordinal]) / this.maxUtilityCounts[issue];
+    }
+
+    // Number of offers of this session having the value for the issue, without the prior
+    public int getValueCount(int issue, int ordinal) {
+        return this.valueCounts[issue][ordinal];
+    }
+
+    // Fraction of the offers having the value for the issue
+    public double getValueFrequency(int issue, int ordinal) {
+        if (ordinal == BidCodec.MISSING || this.offerCount == 0) {
+            return 0;
+        }
+        return (double) this.valueCounts[issue][ordinal] / this.offerCount;
+    }
+
+    // Value the opponent offered most for the issue, MISSING if nothing was offered yet
+    public int getMostFrequentValue(int issue) {
+        return this.mostFrequentValues[issue];
+    }
+
+    // Estimated utility of an encoded bid for the opponent in [0, 1]
+    public double getUtility(int[] codes) {
+        double utility = 0;
+        for (int i = 0; i < this.issueCount; i++) {
+            utility += getIssueWeight(i) * getValueUtility(i, codes[i]);
+        }
+        return utility;
+    }
+}
@@ -0,0 +1,79 @@
+package geniusweb.sampleagent;
+
+/*
+ * Opponent statistics aggregated over negotiation sessions on the same domain: the number of sessions,
+ * the number of offers of the opponents and how often each issue value was offered. Folding in a session
+ * costs O(#values) and the memory does not grow with the number of sessions.
+ */
+
+public class OpponentStatistics {
+
+    private long sessionCount = 0;
+    private long offerCount = 0;
+    // valueCounts[i][v]: number of offers of all sessions having value v for issue i
+    private final long[][] valueCounts;
+
+    public OpponentStatistics(BidCodec codec) {
+        this.valueCounts = new long[codec.getIssueCount()][];
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            this.valueCounts[i] = new long[codec.getValueCount(i)];
+        }
+    }
+
+    // Adds the offers counted by the model of one session
+    public void add(OpponentModel model) {
+        for (int i = 0; i < this.valueCounts.length; i++) {
+            for (int v = 0; v < this.valueCounts[i].length; v++) {
+                this.valueCounts[i][v] += model.getValueCount(i, v);
+            }
+        }
+        this.offerCount += model.getOfferCount();
+        this.sessionCount++;
+    }
+
+    // Adds the statistics of other sessions on the same domain
+    public void add(OpponentStatistics other) {
+        for (int i = 0; i < this.valueCounts.length; i++) {
+            for (int v = 0; v < this.valueCounts[i].length; v++) {
+                this.valueCounts[i][v] += other.valueCounts[i][v];
+            }
+        }
+        this.offerCount += other.offerCount;
+        this.sessionCount += other.sessionCount;
+    }
+
+    // Adds totals read back from a file
+    void add(long sessions, long offers) {
+        this.sessionCount += sessions;
+        this.offerCount += offers;
+    }
+
+    void addValueCount(int issue, int ordinal, long count) {
+        this.valueCounts[issue][ordinal] += count;
+    }
+
+    public long getSessionCount() {
+        return this.sessionCount;
+    }
+
+    public long getOfferCount() {
+        return this.offerCount;
+    }
+
+    public int getIssueCount() {
+        return this.valueCounts.length;
+    }
+
+    public int getValueCount(int issue) {
+        return this.valueCounts[issue].length;
+    }
+
+    public long getValueCount(int issue, int ordinal) {
+        return this.valueCounts[issue][ordinal];
+    }
+
+    // Fraction of all the offers having the value for the issue
+    public double getValueFrequency(int issue, int ordinal) {
+        return this.offerCount == 0 ? 0 : (double) this.valueCounts[issue][ordinal] / this.offerCount;
+    }
+}
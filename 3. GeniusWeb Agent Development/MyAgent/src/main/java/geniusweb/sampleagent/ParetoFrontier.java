@@ -0,0 +1,149 @@
+package geniusweb.sampleagent;
+
+import java.util.Arrays;
+
+/*
+ * Pareto frontier of (our utility, estimated opponent utility) over the bids of a UtilityIndex.
+ * The frontier is rebuilt from the encoded bids of the index when the opponent model has received
+ * refreshInterval new offers since the last build, so the cost of a rebuild (one pass over the
+ * index) is spread over several turns. A frontier built before the first offer only holds the bid best
+ * for us, as the model gives every bid utility 0, so it is rebuilt as soon as there is an offer.
+ * Frontier bids are kept in ascending order of our utility, so the frontier bid closest to a
+ * utility threshold is found with a binary search.
+ */
+
+public class ParetoFrontier {
+
+    private final UtilityIndex index;
+    private final BidCodec codec;
+    // Encoded bid being evaluated during a rebuild
+    private final int[] bidCodes;
+    private final int refreshInterval;
+
+    // Positions in the index of the frontier bids, in ascending order of our utility
+    private int[] frontier;
+    private double[] opponentUtilities;
+    private int size = 0;
+    // Offer count of the opponent model when the frontier was built, -1 if it was never built
+    private int builtAtOfferCount = -1;
+
+    public ParetoFrontier(UtilityIndex index, BidCodec codec, int refreshInterval) {
+        if (refreshInterval <= 0) {
+            throw new IllegalArgumentException("Refresh interval must be positive but is " + refreshInterval);
+        }
+        this.index = index;
+        this.codec = codec;
+        this.bidCodes = new int[codec.getIssueCount()];
+        this.refreshInterval = refreshInterval;
+        this.frontier = new int[Math.min(index.size(), 16)];
+        this.opponentUtilities = new double[this.frontier.length];
+    }
+
+    // Rebuilds the frontier if it was never built or the model has changed enough since the last build
+    public boolean refreshIfStale(OpponentModel model) {
+        if (!isStale(model.getOfferCount())) {
+            return false;
+        }
+        refresh(model);
+        return true;
+    }
+
+    // True if the frontier has to be rebuilt once the opponent model has received offerCount offers
+    public boolean isStale(int offerCount) {
+        return this.builtAtOfferCount < 0 || (this.builtAtOfferCount == 0 && offerCount > 0)
+                || offerCount - this.builtAtOfferCount >= this.refreshInterval;
+    }
+
+    // Offer count of the opponent model when the frontier was built, -1 if it was never built
+    public int getBuiltAtOfferCount() {
+        return this.builtAtOfferCount;
+    }
+
+    public void refresh(OpponentModel model) {
+        // Going from our best bid down, a bid is on the frontier if it is better for the opponent than all bids above it
+        int count = 0;
+        double bestOpponentUtility = Double.NEGATIVE_INFINITY;
+        for (int i = this.index.size() - 1; i >= 0; i--) {
+            this.index.copyCodes(i, this.codec, this.bidCodes);
+            double opponentUtility = model.getUtility(this.bidCodes);
+            if (opponentUtility > bestOpponentUtility) {
+                bestOpponentUtility = opponentUtility;
+                // A bid having the same utility for us but a better one for the opponent dominates the previous bid
+                if (count > 0 && this.index.getUtility(this.frontier[count - 1]) == this.index.getUtility(i)) {
+                    count--;
+                }
+                if (count == this.frontier.length) {
+                    this.frontier = Arrays.copyOf(this.frontier, count * 2);
+                    this.opponentUtilities = Arrays.copyOf(this.opponentUtilities, count * 2);
+                }
+                this.frontier[count] = i;
+                this.opponentUtilities[count] = opponentUtility;
+                count++;
+            }
+        }
+        // Reversing into ascending order of our utility
+        for (int low = 0, high = count - 1; low < high; low++, high--) {
+            int position = this.frontier[low];
+            this.frontier[low] = this.frontier[high];
+            this.frontier[high] = position;
+            double utility = this.opponentUtilities[low];
+            this.opponentUtilities[low] = this.opponentUtilities[high];
+            this.opponentUtilities[high] = utility;
+        }
+        this.size = count;
+        this.builtAtOfferCount = model.getOfferCount();
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    // Position in the index of the k-th frontier bid
+    public int getIndexPosition(int k) {
+        return this.frontier[k];
+    }
+
+    public double getOpponentUtility(int k) {
+        return this.opponentUtilities[k];
+    }
+
+    /*
+     * Frontier bid having the lowest utility for us that is still >= threshold, which is the best
+     * bid for the opponent we are willing to offer. If no frontier bid reaches the threshold, the
+     * frontier bid that is best for us. Returns the position of the bid in the index, -1 if the
+     * frontier is empty.
+     */
+    public int ceilingIndexPosition(double threshold) {
+        int k = ceilingRank(threshold);
+        return k < 0 ? -1 : this.frontier[k];
+    }
+
+    // Rank in the frontier of the bid returned by ceilingIndexPosition(threshold), -1 if the frontier is empty
+    public int ceilingRank(double threshold) {
+        if (this.size == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.index.getUtility(this.frontier[mid]) < threshold) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.min(low, this.size - 1);
+    }
+
+    // True if ceilingRank(threshold) == k, checked in constant time
+    public boolean isCeilingRank(int k, double threshold) {
+        if (k < 0 || k >= this.size) {
+            return false;
+        }
+        boolean reaches = this.index.getUtility(this.frontier[k]) >= threshold;
+        boolean previousBelow = k == 0 || this.index.getUtility(this.frontier[k - 1]) < threshold;
+        // The last rank is also the answer when no frontier bid reaches the threshold
+        return previousBelow && (reaches || k == this.size - 1);
+    }
+}
@@ -0,0 +1,246 @@
+package geniusweb.sampleagent;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * State kept in the persistentstate file between the sessions of a tournament: the sorted bid index
+ * and the opponent statistics of the sessions played with the same profile. The file is binary and
+ * big-endian:
+ *
+ *   header      int magic, int version, long profile hash, int #issues, int #values per issue,
+ *               int #bids in the index, int capacity (-1 if the index holds the whole bid space),
+ *               byte 1 if the bids are packed into longs
+ *   index       double utilities of the bids in ascending order, then the bids: one long per bid
+ *               if packed, otherwise #issues int value ordinals per bid
+ *   statistics  long #sessions, long #offers, long count of every value of every issue
+ *
+ * The index section is mapped as an OffHeapBidIndex when read, so loading the index takes constant
+ * time. The file is replaced atomically when written; an index mapped from the previous file stays
+ * readable until it is garbage collected. If the index was not set since the state was read from the
+ * same file, only the statistics section is overwritten in place and the index is not written again.
+ */
+
+public class PersistentState {
+
+    private static final int MAGIC = 0x4D594147;
+    private static final int VERSION = 1;
+    // Capacity of an index that holds the whole bid space
+    public static final int COMPLETE = -1;
+
+    private final long profileHash;
+    private final BidCodec codec;
+    private UtilityIndex bidIndex;
+    private int indexCapacity = COMPLETE;
+    private final OpponentStatistics statistics;
+    // File the state was read from and the position of its statistics section, null while the index
+    // differs from the one in the file
+    private Path storedFile;
+    private long statisticsPosition;
+
+    public PersistentState(long profileHash, BidCodec codec) {
+        this.profileHash = profileHash;
+        this.codec = codec;
+        this.statistics = new OpponentStatistics(codec);
+    }
+
+    /*
+     * 64-bit FNV-1a hash of the name, issues, values and weighted utilities of a LinearAdditive profile.
+     * Profiles having the same hash build the same bid index.
+     */
+    public static long profileHash(String profileName, LinearAdditiveEvaluator evaluator) {
+        BidCodec codec = evaluator.getCodec();
+        long hash = hash(0xcbf29ce484222325L, profileName);
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            hash = hash(hash, codec.getIssue(i));
+            for (int v = 0; v < codec.getValueCount(i); v++) {
+                hash = hash(hash, codec.getValue(i, v).toString());
+                hash = hash(hash, Double.doubleToLongBits(evaluator.getWeightedUtility(i, v)));
+            }
+        }
+        return hash;
+    }
+
+    /*
+     * Reads the state written for the same profile, returns null if the file does not exist or belongs
+     * to another profile. Throws an IOException if the file is truncated or not written by this class.
+     */
+    public static PersistentState read(File file, long profileHash, BidCodec codec) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a persistent state file: " + file);
+            }
+            if (buffer.getLong() != profileHash || !readShape(buffer, codec)) {
+                return null;
+            }
+            PersistentState state = new PersistentState(profileHash, codec);
+            int size = buffer.getInt();
+            int capacity = buffer.getInt();
+            boolean packed = buffer.get() == 1;
+            long indexBytes = OffHeapBidIndex.byteSize(Math.max(size, 0), codec);
+            if (size < 0 || packed != codec.isPackable() || indexBytes > buffer.remaining()) {
+                throw new IOException("Corrupt persistent state file: " + file);
+            }
+            if (size > 0) {
+                state.setBidIndex(OffHeapBidIndex.map(channel, buffer.position(), size, codec), capacity);
+            }
+            // Buffer.position(int), which also exists on Java 8, not the override of later versions
+            ((Buffer) buffer).position(buffer.position() + (int) indexBytes);
+            state.storedFile = file.toPath();
+            state.statisticsPosition = buffer.position();
+            state.statistics.add(buffer.getLong(), buffer.getLong());
+            for (int i = 0; i < codec.getIssueCount(); i++) {
+                for (int v = 0; v < codec.getValueCount(i); v++) {
+                    state.statistics.addValueCount(i, v, buffer.getLong());
+                }
+            }
+            return state;
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt persistent state file: " + file, e);
+        }
+    }
+
+    public long getProfileHash() {
+        return this.profileHash;
+    }
+
+    // Index of a session, capacity is the number of best bids it was limited to or COMPLETE
+    public void setBidIndex(UtilityIndex bidIndex, int capacity) {
+        this.bidIndex = bidIndex;
+        this.indexCapacity = capacity;
+        this.storedFile = null;
+    }
+
+    // The stored index if it was built with the same capacity, null otherwise
+    public UtilityIndex getBidIndex(int capacity) {
+        return this.indexCapacity == capacity ? this.bidIndex : null;
+    }
+
+    public OpponentStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /*
+     * Overwrites the statistics of the file if it still holds the index of this state, otherwise writes
+     * into a temporary file next to the file and then replaces the file with it.
+     */
+    public void write(File file) throws IOException {
+        Path target = file.toPath();
+        if (target.equals(this.storedFile) && Files.size(target) == this.statisticsPosition + statisticsByteSize()) {
+            writeStatistics(target);
+            return;
+        }
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+                writeTo(out);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(this.profileHash);
+        out.writeInt(this.codec.getIssueCount());
+        for (int i = 0; i < this.codec.getIssueCount(); i++) {
+            out.writeInt(this.codec.getValueCount(i));
+        }
+
+        int size = this.bidIndex == null ? 0 : this.bidIndex.size();
+        boolean packed = this.codec.isPackable();
+        out.writeInt(size);
+        out.writeInt(this.indexCapacity);
+        out.writeByte(packed ? 1 : 0);
+        if (size > 0) {
+            OffHeapBidIndex.write(out, this.bidIndex, this.codec);
+        }
+
+        writeStatistics(out);
+    }
+
+    // Writes the statistics over the statistics section of the file, leaving the header and the index as they are
+    private void writeStatistics(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) statisticsByteSize());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeStatistics(out);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            long position = this.statisticsPosition;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    private void writeStatistics(DataOutputStream out) throws IOException {
+        out.writeLong(this.statistics.getSessionCount());
+        out.writeLong(this.statistics.getOfferCount());
+        for (int i = 0; i < this.codec.getIssueCount(); i++) {
+            for (int v = 0; v < this.codec.getValueCount(i); v++) {
+                out.writeLong(this.statistics.getValueCount(i, v));
+            }
+        }
+    }
+
+    // Number of bytes of the statistics section: the totals and a count per value
+    private long statisticsByteSize() {
+        long values = 0;
+        for (int i = 0; i < this.codec.getIssueCount(); i++) {
+            values += this.codec.getValueCount(i);
+        }
+        return (2 + values) * Long.BYTES;
+    }
+
+    // True if the number of issues and values of the file match the codec
+    private static boolean readShape(MappedByteBuffer buffer, BidCodec codec) {
+        if (buffer.getInt() != codec.getIssueCount()) {
+            return false;
+        }
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            if (buffer.getInt() != codec.getValueCount(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(long hash, String text) {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        // Separator, so that the issue "ab" with the value "c" differs from "a" with "bc"
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+
+    private static long hash(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,199 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Appends the events of a session to a negotiationdata file in the NegotiationData format. Events are
+ * encoded into one of two preallocated direct buffers; when it is full, the buffers are swapped and a
+ * background thread writes the full one to the file while the session goes on. Recording an event only
+ * waits if the previous buffer is still being written, and creates no objects.
+ *
+ * Not thread-safe: the events are recorded by the thread handling the informs of the party. A failure to
+ * write stops the recording and is thrown by close().
+ */
+
+public class SessionRecorder implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final int[] codes;
+    private final BidCodec codec;
+    private ByteBuffer active;
+    private ByteBuffer writing;
+    private final ExecutorService writer;
+    private Future<?> pendingWrite;
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    // Replaces the file, the buffer must hold the header and the largest event
+    public SessionRecorder(File file, long profileHash, BidCodec codec, int bufferSize) throws IOException {
+        int headerSize = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES * (1 + codec.getIssueCount());
+        int eventSize = 2 + Integer.BYTES * codec.getIssueCount();
+        if (bufferSize < Math.max(headerSize, eventSize)) {
+            throw new IllegalArgumentException("Buffer of " + bufferSize + " bytes is too small for the events of " +
+                    codec.getIssueCount() + " issues");
+        }
+        if (file.getAbsoluteFile().getParentFile() != null) {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.codec = codec;
+        this.codes = new int[codec.getIssueCount()];
+        this.active = ByteBuffer.allocateDirect(bufferSize);
+        this.writing = ByteBuffer.allocateDirect(bufferSize);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SessionRecorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.active.putInt(NegotiationData.MAGIC);
+        this.active.putInt(NegotiationData.VERSION);
+        this.active.putLong(profileHash);
+        this.active.putInt(codec.getIssueCount());
+        for (int i = 0; i < codec.getIssueCount(); i++) {
+            this.active.putInt(codec.getValueCount(i));
+        }
+    }
+
+    // Seed of the random generator of the party, so that the session can be replayed
+    public void seed(long seed) {
+        reserve(1 + Long.BYTES);
+        this.active.put(NegotiationData.SEED).putLong(seed);
+    }
+
+    // Our turn started at the given time of the negotiation
+    public void turn(double time) {
+        reserve(1 + Double.BYTES);
+        this.active.put(NegotiationData.TURN).putDouble(time);
+    }
+
+    // The mutation search of our turn was stopped by its time budget after the given number of combinations
+    public void cut(int combinations) {
+        reserve(1 + Integer.BYTES);
+        this.active.put(NegotiationData.CUT).putInt(combinations);
+    }
+
+    public void offer(byte party, Bid bid) {
+        reserve(2 + Integer.BYTES * this.codes.length);
+        this.active.put(NegotiationData.OFFER).put(party);
+        putBid(bid);
+    }
+
+    public void accept(byte party, Bid bid) {
+        reserve(2 + Integer.BYTES * this.codes.length);
+        this.active.put(NegotiationData.ACCEPT).put(party);
+        putBid(bid);
+    }
+
+    public void end(byte party) {
+        reserve(2);
+        this.active.put(NegotiationData.END).put(party);
+    }
+
+    // End of the session, agreement is null if there is none
+    public void finished(Bid agreement) {
+        reserve(2 + Integer.BYTES * this.codes.length);
+        this.active.put(NegotiationData.FINISHED).put((byte) (agreement == null ? 0 : 1));
+        if (agreement != null) {
+            putBid(agreement);
+        }
+    }
+
+    // Hands the recorded events over to the background thread, without waiting for them to be written
+    public void flush() {
+        if (this.closed || this.active.position() == 0) {
+            return;
+        }
+        awaitWrite();
+        ByteBuffer full = this.active;
+        this.active = this.writing;
+        this.writing = full;
+        // Called through Buffer: compiled on JDK 9+, ByteBuffer.flip() and clear() do not exist on Java 8
+        ((Buffer) full).flip();
+        this.pendingWrite = this.writer.submit(() -> {
+            try {
+                if (this.failure == null) {
+                    while (full.hasRemaining()) {
+                        this.channel.write(full);
+                    }
+                }
+            } catch (IOException e) {
+                this.failure = e;
+            } finally {
+                ((Buffer) full).clear();
+            }
+        });
+    }
+
+    // Writes the remaining events and closes the file, throws the first failure to write
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        flush();
+        awaitWrite();
+        this.closed = true;
+        this.writer.shutdown();
+        this.channel.close();
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void reserve(int bytes) {
+        if (this.closed) {
+            throw new IllegalStateException("Recorder is closed");
+        }
+        if (this.active.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void putBid(Bid bid) {
+        this.codec.encode(bid, this.codes);
+        for (int code : this.codes) {
+            this.active.putInt(code);
+        }
+    }
+
+    // Waits for the write of the other buffer, an interrupt only ends the wait after the write
+    private void awaitWrite() {
+        if (this.pendingWrite == null) {
+            return;
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    this.pendingWrite.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to write the session data", e.getCause());
+        } finally {
+            this.pendingWrite = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
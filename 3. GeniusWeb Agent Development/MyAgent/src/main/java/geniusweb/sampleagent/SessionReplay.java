@@ -0,0 +1,95 @@
+package geniusweb.sampleagent;
+
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.EndNegotiation;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Agreements;
+import geniusweb.inform.Finished;
+import geniusweb.inform.YourTurn;
+import geniusweb.issuevalue.Bid;
+import geniusweb.party.Party;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Replays a session recorded by a SessionRecorder into a party, for debugging a session offline: every
+ * recorded action is informed as an ActionDone, every turn of ours as a YourTurn and the end of the
+ * session as Finished. The party has to be connected and to have received its Settings first, with the
+ * recorded seed if it is to repeat its actions. The recorded cuts of the mutation search are not informed
+ * either, they are given to MyAgent with limitNextMutation() to repeat its offers exactly. The actions the
+ * party sends during the replay are not fed back, the recorded ones are informed instead.
+ */
+
+public class SessionReplay {
+
+    private final BidCodec codec;
+    private final PartyId us;
+    private final PartyId opponent;
+
+    // us and opponent are the actors given to the recorded actions of both sides
+    public SessionReplay(BidCodec codec, PartyId us, PartyId opponent) {
+        this.codec = codec;
+        this.us = us;
+        this.opponent = opponent;
+    }
+
+    /*
+     * Informs the party of the events of the file and returns the number of events, -1 if the file was
+     * recorded for another profile.
+     */
+    public int replay(File file, long profileHash, Party party) throws IOException {
+        try (NegotiationData.Reader reader = NegotiationData.Reader.open(file, profileHash, this.codec)) {
+            if (reader == null) {
+                return -1;
+            }
+            int events = 0;
+            while (reader.next()) {
+                events++;
+                switch (reader.getType()) {
+                    case NegotiationData.SEED:
+                    case NegotiationData.CUT:
+                        break;
+                    case NegotiationData.TURN:
+                        party.notifyChange(new YourTurn());
+                        break;
+                    case NegotiationData.FINISHED:
+                        party.notifyChange(toFinished(reader));
+                        break;
+                    default:
+                        party.notifyChange(new ActionDone(toAction(reader)));
+                }
+            }
+            return events;
+        }
+    }
+
+    // Action of an OFFER, ACCEPT or END event
+    Action toAction(NegotiationData.Reader reader) {
+        PartyId actor = reader.getParty() == NegotiationData.US ? this.us : this.opponent;
+        switch (reader.getType()) {
+            case NegotiationData.OFFER:
+                return new Offer(actor, this.codec.decode(reader.getCodes()));
+            case NegotiationData.ACCEPT:
+                return new Accept(actor, this.codec.decode(reader.getCodes()));
+            default:
+                return new EndNegotiation(actor);
+        }
+    }
+
+    // Finished of a FINISHED event, with the agreement for both parties if there is one
+    Finished toFinished(NegotiationData.Reader reader) {
+        Map<PartyId, Bid> agreement = new HashMap<>();
+        if (reader.hasAgreement()) {
+            Bid bid = this.codec.decode(reader.getCodes());
+            agreement.put(this.us, bid);
+            agreement.put(this.opponent, bid);
+        }
+        return new Finished(new Agreements(agreement));
+    }
+}
@@ -0,0 +1,18 @@
+package geniusweb.sampleagent;
+
+/*
+ * Accepts an offer having a utility value greater than the value of the concession curve.
+ */
+
+public final class ThresholdAcceptance implements AcceptanceStrategy {
+
+    // Only the threshold counts, the previous offers are not needed
+    @Override
+    public void observe(double utility) {
+    }
+
+    @Override
+    public boolean isAcceptable(double utility, double threshold, double time) {
+        return utility > threshold;
+    }
+}
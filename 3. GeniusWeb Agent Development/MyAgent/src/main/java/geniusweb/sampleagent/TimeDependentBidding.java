@@ -0,0 +1,27 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+/*
+ * Offers the bid of the index having the lowest utility value that is still acceptable, the classic
+ * time dependent tactic: the offers follow the concession curve, without an opponent model. Offers the
+ * best bid if none is acceptable.
+ */
+
+public final class TimeDependentBidding implements BiddingStrategy {
+
+    private final UtilityIndex index;
+
+    public TimeDependentBidding(UtilityIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public Bid chooseBid(double threshold) {
+        int position = this.index.ceilingIndex(threshold);
+        if (position == this.index.size()) {
+            return this.index.getMaxUtilityBid();
+        }
+        return this.index.getBid(position);
+    }
+}
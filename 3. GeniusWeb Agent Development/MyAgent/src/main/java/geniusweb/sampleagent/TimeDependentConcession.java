@@ -0,0 +1,27 @@
+package geniusweb.sampleagent;
+
+/*
+ * Time dependent tactic of Faratin et al.: concedes from 1.0 at the start of the negotiation to 0.7 at
+ * the deadline as 0.7 + (1 - time^(1/e)) * 0.3. With e < 1 (Boulware) the agent hardly concedes until
+ * the deadline is near, with e > 1 (Conceder) it concedes early. With e = 1 it is LinearConcession.
+ */
+
+public final class TimeDependentConcession implements ConcessionStrategy {
+
+    public static final double BOULWARE = 0.2;
+    public static final double CONCEDER = 2.0;
+
+    private final double inverseExponent;
+
+    public TimeDependentConcession(double exponent) {
+        if (!(exponent > 0)) {
+            throw new IllegalArgumentException("Exponent must be positive but is " + exponent);
+        }
+        this.inverseExponent = 1 / exponent;
+    }
+
+    @Override
+    public double getAcceptableUtility(double time) {
+        return 0.7 + (1 - Math.pow(time, this.inverseExponent)) * 0.3;
+    }
+}
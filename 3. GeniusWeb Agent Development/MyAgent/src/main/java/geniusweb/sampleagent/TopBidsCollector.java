@@ -0,0 +1,112 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+/*
+ * Keeps the k bids having the highest utility values out of a stream of bids.
+ * It is used when the bid space is too large to be materialized: bids are enumerated
+ * lazily, their utility values are computed on the fly and only a bounded min-heap
+ * of the best bids is kept in memory.
+ */
+
+public class TopBidsCollector {
+
+    private final int capacity;
+    // Min-heap on utility value, heapBids[i] has utility value heapUtilities[i]
+    private final Bid[] heapBids;
+    private final double[] heapUtilities;
+    private int size = 0;
+    // Number of bids offered to the collector
+    private long seen = 0;
+
+    public TopBidsCollector(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive but is " + capacity);
+        }
+        this.capacity = capacity;
+        this.heapBids = new Bid[capacity];
+        this.heapUtilities = new double[capacity];
+    }
+
+    public void offer(Bid bid, double utility) {
+        this.seen++;
+        if (this.size < this.capacity) {
+            this.heapBids[this.size] = bid;
+            this.heapUtilities[this.size] = utility;
+            siftUp(this.size++);
+        } else if (utility > this.heapUtilities[0]) {
+            // The new bid replaces the worst bid kept so far
+            this.heapBids[0] = bid;
+            this.heapUtilities[0] = utility;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long getSeen() {
+        return this.seen;
+    }
+
+    // Lowest utility value kept so far, or negative infinity if nothing is kept yet
+    public double getMinUtility() {
+        return this.size == 0 ? Double.NEGATIVE_INFINITY : this.heapUtilities[0];
+    }
+
+    // Empties the heap into a BidIndex. The collector can not be used afterwards.
+    public BidIndex toBidIndex() {
+        int count = this.size;
+        Bid[] bids = new Bid[count];
+        double[] utilities = new double[count];
+        // Removing the minimum repeatedly yields the bids in ascending utility order
+        for (int i = 0; i < count; i++) {
+            bids[i] = this.heapBids[0];
+            utilities[i] = this.heapUtilities[0];
+            this.size--;
+            this.heapBids[0] = this.heapBids[this.size];
+            this.heapUtilities[0] = this.heapUtilities[this.size];
+            this.heapBids[this.size] = null;
+            siftDown(0);
+        }
+        return new BidIndex(bids, utilities);
+    }
+
+    private void siftUp(int index) {
+        Bid bid = this.heapBids[index];
+        double utility = this.heapUtilities[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (this.heapUtilities[parent] <= utility) {
+                break;
+            }
+            this.heapBids[index] = this.heapBids[parent];
+            this.heapUtilities[index] = this.heapUtilities[parent];
+            index = parent;
+        }
+        this.heapBids[index] = bid;
+        this.heapUtilities[index] = utility;
+    }
+
+    private void siftDown(int index) {
+        Bid bid = this.heapBids[index];
+        double utility = this.heapUtilities[index];
+        int half = this.size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < this.size && this.heapUtilities[right] < this.heapUtilities[child]) {
+                child = right;
+            }
+            if (utility <= this.heapUtilities[child]) {
+                break;
+            }
+            this.heapBids[index] = this.heapBids[child];
+            this.heapUtilities[index] = this.heapUtilities[child];
+            index = child;
+        }
+        this.heapBids[index] = bid;
+        this.heapUtilities[index] = utility;
+    }
+}
@@ -0,0 +1,93 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/*
+ * Latency histograms of the phases of a negotiation session. The agent measures each phase with
+ * System.nanoTime() and records the duration into the histogram of the phase, which does not allocate.
+ * At the end of the session, the summary is logged and written as a CSV file.
+ */
+
+public class TurnMetrics {
+
+    public enum Phase {
+        // Loading the profile and building the bid index
+        INIT,
+        // Handling of YourTurn, from the progress update to the sent action
+        MY_TURN,
+        // Utility evaluation of the received bid
+        IS_ACCEPTABLE,
+        // Selection and mutation of the bid to offer
+        MAKE_AN_OFFER,
+        // Selection of the candidate bid among the acceptable ones
+        CANDIDATE_SELECTION,
+        // Replacement of an issue value with a value offered by the opponent
+        MUTATION,
+        // getConnection().send() of the action
+        SEND
+    }
+
+    static final String CSV_HEADER = "phase,count,min_ns,mean_ns,p50_ns,p90_ns,p99_ns,max_ns";
+
+    private final EnumMap<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+
+    public TurnMetrics() {
+        for (Phase phase : Phase.values()) {
+            this.histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        this.histograms.get(phase).record(nanos);
+    }
+
+    public LatencyHistogram getHistogram(Phase phase) {
+        return this.histograms.get(phase);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : this.histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    // One human readable line per phase having recorded values, in microseconds
+    public List<String> getSummary() {
+        List<String> lines = new ArrayList<>();
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = this.histograms.get(phase);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            lines.add(String.format("%s: count=%d p50=%.1fus p99=%.1fus max=%.1fus", phase, histogram.getCount(),
+                    histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+        return lines;
+    }
+
+    // Writes one CSV line per phase, including the phases without recorded values
+    public void writeCsv(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = this.histograms.get(phase);
+                writer.write(phase + "," + histogram.getCount() + "," + histogram.getMin() + ","
+                        + Math.round(histogram.getMean()) + "," + histogram.getPercentile(50) + ","
+                        + histogram.getPercentile(90) + "," + histogram.getPercentile(99) + ","
+                        + histogram.getMax() + "\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package geniusweb.sampleagent;
+
+import geniusweb.actions.Action;
+import geniusweb.progress.Progress;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * Fits the work of a turn into the time that is left before the deadline of the negotiation.
+ * Before a turn, plan() compares the remaining time minus a safety margin with the slowest full
+ * search measured so far and chooses between a full search of the index and a cached candidate
+ * that costs nothing. During a turn, a watchdog thread sends a fallback action when the safety
+ * margin is reached, so an action is always sent in time even if the search is slower than
+ * planned. Exactly one action is sent per turn: either the one passed to complete() or the
+ * fallback action.
+ *
+ * The budgets are in the time of the clock the remaining time is read from. The watchdog runs in real
+ * time, so it is only armed when that clock is the system clock: under a virtual clock, a turn only
+ * falls back when its budget is already used up when it starts.
+ */
+
+public class TurnScheduler implements AutoCloseable {
+
+    public enum Strategy {
+        // Selecting the offer with a search of the index
+        FULL_SEARCH,
+        // Offering the cached candidate, in constant time
+        CACHED_CANDIDATE
+    }
+
+    // A full search is only planned if the time left is this many times the slowest search so far
+    static final int SEARCH_COST_FACTOR = 2;
+
+    // Sends an action to the other party
+    public interface ActionSender {
+        void send(Action action) throws IOException;
+    }
+
+    private final long safetyMarginMillis;
+    private final ActionSender sender;
+    // Handles the failures to send the fallback action, which happen outside of the negotiation thread
+    private final Consumer<IOException> errorHandler;
+    private final ScheduledThreadPoolExecutor watchdogExecutor;
+    // False if the budgets are in virtual time, which a real-time watchdog can not measure
+    private final boolean realTime;
+
+    // Number of the turn being played, 0 if no turn is in progress
+    private final AtomicLong openTurn = new AtomicLong();
+    private long turnCount = 0;
+    private ScheduledFuture<?> watchdog;
+    // Number of turns in which the fallback action was sent by the watchdog
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    public TurnScheduler(long safetyMarginMillis, ActionSender sender, Consumer<IOException> errorHandler) {
+        this(safetyMarginMillis, sender, errorHandler, Clock.systemUTC());
+    }
+
+    // clock is the clock the current time given to getBudgetMillis() is read from
+    public TurnScheduler(long safetyMarginMillis, ActionSender sender, Consumer<IOException> errorHandler,
+                         Clock clock) {
+        if (safetyMarginMillis < 0) {
+            throw new IllegalArgumentException("Safety margin must not be negative but is " + safetyMarginMillis);
+        }
+        this.safetyMarginMillis = safetyMarginMillis;
+        this.sender = sender;
+        this.errorHandler = errorHandler;
+        this.realTime = Clock.system(clock.getZone()).equals(clock);
+        this.watchdogExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "TurnScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The watchdog of a turn is scheduled at the deadline of the negotiation and nearly always cancelled:
+        // without this it would stay queued, with its fallback action, until the deadline
+        this.watchdogExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    // Time left for the turn, Long.MAX_VALUE if the progress has no known termination time
+    public long getBudgetMillis(Progress progress, long now) {
+        Date terminationTime = progress == null ? null : progress.getTerminationTime();
+        if (terminationTime == null) {
+            return Long.MAX_VALUE;
+        }
+        return terminationTime.getTime() - this.safetyMarginMillis - now;
+    }
+
+    // Full search if the budget allows the slowest search measured so far, which is 0 before the first search
+    public Strategy plan(long budgetMillis, long slowestSearchNanos) {
+        if (budgetMillis == Long.MAX_VALUE) {
+            return Strategy.FULL_SEARCH;
+        }
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, budgetMillis));
+        return budgetNanos > SEARCH_COST_FACTOR * slowestSearchNanos ? Strategy.FULL_SEARCH : Strategy.CACHED_CANDIDATE;
+    }
+
+    /*
+     * Starts a turn: the fallback action is sent by the watchdog when the budget runs out before complete()
+     * is called. If the budget is already used up, the fallback action is sent right away. A budget of
+     * Long.MAX_VALUE, or any budget under a virtual clock, arms no watchdog.
+     */
+    public void startTurn(long budgetMillis, Action fallback) {
+        // The watchdog of a turn that was never completed
+        cancelWatchdog();
+        long turn = ++this.turnCount;
+        this.openTurn.set(turn);
+        if (budgetMillis == Long.MAX_VALUE) {
+            this.watchdog = null;
+            return;
+        }
+        Runnable sendFallback = () -> {
+            if (this.openTurn.compareAndSet(turn, 0)) {
+                this.fallbackCount.incrementAndGet();
+                try {
+                    this.sender.send(fallback);
+                } catch (IOException e) {
+                    this.errorHandler.accept(e);
+                }
+            }
+        };
+        if (budgetMillis <= 0) {
+            this.watchdog = null;
+            sendFallback.run();
+        } else if (!this.realTime) {
+            this.watchdog = null;
+        } else {
+            this.watchdog = this.watchdogExecutor.schedule(sendFallback, budgetMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Sends the action of the turn, returns false if the fallback action was sent instead
+    public boolean complete(Action action) throws IOException {
+        long turn = this.openTurn.get();
+        if (turn == 0 || !this.openTurn.compareAndSet(turn, 0)) {
+            return false;
+        }
+        cancelWatchdog();
+        this.sender.send(action);
+        return true;
+    }
+
+    private void cancelWatchdog() {
+        if (this.watchdog != null) {
+            this.watchdog.cancel(false);
+            this.watchdog = null;
+        }
+    }
+
+    // Package-private so that the tests can check that no cancelled watchdog is kept
+    int getQueuedWatchdogCount() {
+        return this.watchdogExecutor.getQueue().size();
+    }
+
+    public long getFallbackCount() {
+        return this.fallbackCount.get();
+    }
+
+    @Override
+    public void close() {
+        this.watchdogExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,30 @@
+package geniusweb.sampleagent;
+
+import geniusweb.issuevalue.Bid;
+
+/*
+ * Bids sorted by their utility value (ascending order), addressed by their position. The bids
+ * having utility >= some threshold form the slice [ceilingIndex(threshold), size()). Implemented
+ * on the heap by BidIndex and off the heap by OffHeapBidIndex.
+ */
+
+public interface UtilityIndex {
+
+    int size();
+
+    double getUtility(int index);
+
+    // Index of the first bid having utility value >= threshold, size() if there is none
+    int ceilingIndex(double threshold);
+
+    // Highest utility value, NaN if the index is empty
+    double getMaxUtility();
+
+    Bid getBid(int index);
+
+    // Bid having the highest utility value, null if the index is empty
+    Bid getMaxUtilityBid();
+
+    // Writes the value ordinals of the bid at the index into codes, as codec.encode(getBid(index), codes) does
+    void copyCodes(int index, BidCodec codec, int[] codes);
+}
@@ -0,0 +1,134 @@
+package geniusweb.sampleagent;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/*
+ * Computes the utility value of every bid in the bid space on a fork-join pool.
+ * The bid space is split into index ranges of AllBidsList, and the result of bid i is
+ * always written to position i, so the result does not depend on the scheduling of the tasks.
+ * Afterwards a sample of the bids is computed again on the calling thread, as the sequential baseline
+ * the speedup is measured against.
+ */
+
+public class UtilityPrecomputation {
+
+    // Ranges smaller than this are not split any further
+    static final int MIN_RANGE_SIZE = 512;
+    // Number of bids computed on a single thread for the sequential baseline
+    static final int SEQUENTIAL_SAMPLE_SIZE = 4096;
+
+    private final AllBidsList allBidsList;
+    // Utility function, must be safe to call from several threads
+    private final ToDoubleFunction<Bid> utilityFunction;
+    private final int parallelism;
+
+    private Bid[] bids;
+    private double[] utilities;
+    // Wall-clock time of the whole computation
+    private long elapsedNanos;
+    // Time a single thread needs for the whole bid space, extrapolated from the sample
+    private long sequentialNanos;
+
+    public UtilityPrecomputation(AllBidsList allBidsList, ToDoubleFunction<Bid> utilityFunction, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+        }
+        if (allBidsList.size().compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
+            throw new IllegalArgumentException("Bid space is too large to be precomputed: " + allBidsList.size());
+        }
+        this.allBidsList = allBidsList;
+        this.utilityFunction = utilityFunction;
+        this.parallelism = parallelism;
+    }
+
+    public void compute() {
+        int size = this.allBidsList.size().intValue();
+        this.bids = new Bid[size];
+        this.utilities = new double[size];
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(new RangeTask(0, size));
+        } finally {
+            pool.shutdown();
+        }
+        this.elapsedNanos = System.nanoTime() - start;
+        measureSequential(size);
+    }
+
+    /*
+     * Times the bids at evenly spaced indices on the calling thread. This runs after the parallel computation,
+     * so both are measured with the same compiled code.
+     */
+    private void measureSequential(int size) {
+        int sample = Math.min(size, SEQUENTIAL_SAMPLE_SIZE);
+        if (sample == 0) {
+            this.sequentialNanos = 0;
+            return;
+        }
+        long stride = size / sample;
+        long start = System.nanoTime();
+        for (int n = 0; n < sample; n++) {
+            this.utilityFunction.applyAsDouble(this.allBidsList.get(BigInteger.valueOf(n * stride)));
+        }
+        this.sequentialNanos = (System.nanoTime() - start) * size / sample;
+    }
+
+    // Bids in AllBidsList order
+    public Bid[] getBids() {
+        return this.bids;
+    }
+
+    // getUtilities()[i] is the utility value of getBids()[i]
+    public double[] getUtilities() {
+        return this.utilities;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos);
+    }
+
+    public long getSequentialMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.sequentialNanos);
+    }
+
+    // Measured sequential time divided by the parallel time
+    public double getSpeedup() {
+        return this.elapsedNanos == 0 ? 1.0 : (double) this.sequentialNanos / this.elapsedNanos;
+    }
+
+    private class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        RangeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= MIN_RANGE_SIZE) {
+                for (int i = this.from; i < this.to; i++) {
+                    Bid bid = allBidsList.get(BigInteger.valueOf(i));
+                    bids[i] = bid;
+                    utilities[i] = utilityFunction.applyAsDouble(bid);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new RangeTask(this.from, middle), new RangeTask(middle, this.to));
+            }
+        }
+    }
+}
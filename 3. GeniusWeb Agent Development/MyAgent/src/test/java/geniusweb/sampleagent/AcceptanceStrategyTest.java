@@ -0,0 +1,58 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AcceptanceStrategyTest {
+
+	@Test
+	public void testThreshold() {
+		AcceptanceStrategy acceptance = new ThresholdAcceptance();
+		assertTrue(acceptance.isAcceptable(0.81, 0.8, 0.5));
+		assertFalse(acceptance.isAcceptable(0.8, 0.8, 0.5));
+		assertFalse(acceptance.isAcceptable(0.5, 0.8, 1.0));
+	}
+
+	@Test
+	public void testCombiBeforeFinalPhase() {
+		// Only the threshold counts, however good the offer is compared to the previous ones
+		AcceptanceStrategy acceptance = new CombiAcceptance(0.9);
+		assertFalse(offer(acceptance, 0.5, 0.8, 0.1));
+		assertFalse(offer(acceptance, 0.6, 0.8, 0.2));
+		assertTrue(offer(acceptance, 0.85, 0.8, 0.3));
+	}
+
+	@Test
+	public void testCombiAcceptsBestPreviousOfferInFinalPhase() {
+		AcceptanceStrategy acceptance = new CombiAcceptance(0.9);
+		assertFalse(offer(acceptance, 0.6, 0.8, 0.5));
+		assertFalse(offer(acceptance, 0.4, 0.8, 0.6));
+		// Worse than the best previous offer
+		assertFalse(offer(acceptance, 0.5, 0.75, 0.95));
+		// As good as the best previous offer
+		assertTrue(offer(acceptance, 0.6, 0.75, 0.96));
+	}
+
+	@Test
+	public void testCombiNotChangedByQuestions() {
+		AcceptanceStrategy acceptance = new CombiAcceptance(0.9);
+		acceptance.observe(0.5);
+		// Asking about better offers, as a benchmark does, must not raise the best offer
+		for (int n = 0; n < 10; n++) {
+			assertFalse(acceptance.isAcceptable(0.7, 0.8, 0.5));
+		}
+		assertTrue(acceptance.isAcceptable(0.5, 0.8, 0.95));
+		assertTrue(acceptance.isAcceptable(0.5, 0.8, 0.95));
+	}
+
+	/**
+	 * Receives an offer of the opponent, as MyAgent does: the offer is observed
+	 * first and asked about on the next turn.
+	 */
+	private static boolean offer(AcceptanceStrategy acceptance, double utility, double threshold, double time) {
+		acceptance.observe(utility);
+		return acceptance.isAcceptable(utility, threshold, time);
+	}
+}
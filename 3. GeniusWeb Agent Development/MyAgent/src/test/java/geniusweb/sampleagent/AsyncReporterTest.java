@@ -0,0 +1,154 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import tudelft.utilities.logging.Reporter;
+
+public class AsyncReporterTest {
+
+	@Test
+	public void testRecordsDeliveredInOrder() {
+		RecordingReporter delegate = new RecordingReporter();
+		AsyncReporter reporter = new AsyncReporter(delegate, 16, AsyncReporter.OverflowPolicy.DROP);
+		for (int n = 0; n < 10; n++) {
+			reporter.log(Level.INFO, "message" + n);
+			// The buffer is smaller than the records logged, waiting so that none is dropped
+			assertTrue(reporter.flush(1, TimeUnit.SECONDS));
+		}
+		reporter.close();
+		assertEquals(10, delegate.messages.size());
+		for (int n = 0; n < 10; n++) {
+			assertEquals("message" + n, delegate.messages.get(n));
+		}
+		assertEquals(0, reporter.getDroppedCount());
+	}
+
+	@Test
+	public void testIdleThreadWokenByNextRecord() throws InterruptedException {
+		RecordingReporter delegate = new RecordingReporter();
+		AsyncReporter reporter = new AsyncReporter(delegate);
+		for (int n = 0; n < 3; n++) {
+			// Long enough for the background thread to park on an empty buffer
+			Thread.sleep(50);
+			reporter.log(Level.INFO, "message" + n);
+			assertTrue(reporter.flush(1, TimeUnit.SECONDS));
+			assertEquals(n + 1, delegate.messages.size());
+		}
+		reporter.close();
+	}
+
+	@Test
+	public void testSupplierFormattedOnBackgroundThread() {
+		RecordingReporter delegate = new RecordingReporter();
+		AsyncReporter reporter = new AsyncReporter(delegate);
+		reporter.log(Level.INFO, () -> Thread.currentThread().getName());
+		reporter.close();
+		assertEquals(Collections.singletonList("AsyncReporter"), delegate.messages);
+	}
+
+	@Test
+	public void testOverflowDropsRecords() throws InterruptedException {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingReporter delegate = new RecordingReporter() {
+			@Override
+			public void log(Level level, String msg) {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				super.log(level, msg);
+			}
+		};
+		AsyncReporter reporter = new AsyncReporter(delegate, 4, AsyncReporter.OverflowPolicy.DROP_AND_REPORT);
+		reporter.log(Level.INFO, "first");
+		assertTrue(entered.await(1, TimeUnit.SECONDS));
+		// The background thread is blocked: only 4 more records fit
+		for (int n = 0; n < 10; n++) {
+			reporter.log(Level.INFO, "message" + n);
+		}
+		assertEquals(6, reporter.getDroppedCount());
+		release.countDown();
+		reporter.close();
+		assertEquals(5, delegate.messages.size());
+		assertEquals(1, delegate.warnings.size());
+		assertTrue(delegate.warnings.get(0).contains("dropped 6"));
+	}
+
+	@Test
+	public void testLogAfterClose() {
+		RecordingReporter delegate = new RecordingReporter();
+		AsyncReporter reporter = new AsyncReporter(delegate);
+		reporter.close();
+		reporter.log(Level.INFO, "late");
+		assertEquals(Collections.singletonList("late"), delegate.messages);
+	}
+
+	@Test
+	public void testNoRecordLostWhileClosing() throws InterruptedException {
+		for (int run = 0; run < 20; run++) {
+			RecordingReporter delegate = new RecordingReporter();
+			AsyncReporter reporter = new AsyncReporter(delegate, 64, AsyncReporter.OverflowPolicy.DROP);
+			int producers = 4;
+			int records = 2000;
+			CountDownLatch start = new CountDownLatch(1);
+			List<Thread> threads = new ArrayList<>();
+			for (int p = 0; p < producers; p++) {
+				Thread thread = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int n = 0; n < records; n++) {
+						reporter.log(Level.INFO, "message");
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			start.countDown();
+			// Closed while the producers are logging
+			reporter.close();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			// Every record is either delivered, by the background thread or the producer, or counted as dropped
+			assertEquals(producers * records, delegate.messages.size() + reporter.getDroppedCount());
+		}
+	}
+
+	@Test
+	public void testCapacityRoundedUp() {
+		AsyncReporter reporter = new AsyncReporter(new RecordingReporter(), 100, AsyncReporter.OverflowPolicy.DROP);
+		assertEquals(128, reporter.getCapacity());
+		reporter.close();
+	}
+
+	private static class RecordingReporter implements Reporter {
+		final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		final List<String> warnings = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void log(Level level, String msg) {
+			(level == Level.WARNING ? warnings : messages).add(msg);
+		}
+
+		@Override
+		public void log(Level level, String msg, Throwable thrown) {
+			log(level, msg);
+		}
+	}
+}
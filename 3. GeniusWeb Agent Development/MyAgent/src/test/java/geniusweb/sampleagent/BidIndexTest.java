@@ -0,0 +1,137 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class BidIndexTest {
+
+	private static final String PROFILE = "src/test/resources/testprofile.json";
+	private final static ObjectMapper jackson = new ObjectMapper();
+
+	private LinearAdditive profile;
+	private BidIndex index;
+
+	@Before
+	public void before() throws IOException {
+		String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)), StandardCharsets.UTF_8);
+		profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		int size = allBids.size().intValue();
+		Bid[] bids = new Bid[size];
+		double[] utilities = new double[size];
+		int i = 0;
+		for (Bid bid : allBids) {
+			bids[i] = bid;
+			utilities[i++] = profile.getUtility(bid).doubleValue();
+		}
+		index = BidIndex.sort(bids, utilities);
+	}
+
+	@Test
+	public void testSize() {
+		assertEquals(14, index.size());
+	}
+
+	@Test
+	public void testSortedAscending() {
+		for (int i = 1; i < index.size(); i++) {
+			assertTrue(index.getUtility(i - 1) <= index.getUtility(i));
+		}
+	}
+
+	@Test
+	public void testCeilingIndexMatchesScan() {
+		for (double threshold = 0; threshold <= 1.0; threshold += 0.05) {
+			int expected = 0;
+			for (Bid bid : new AllBidsList(profile.getDomain())) {
+				if (profile.getUtility(bid).doubleValue() >= threshold) {
+					expected++;
+				}
+			}
+			assertEquals(expected, index.countAtLeast(threshold));
+			assertEquals(index.size() - expected, index.ceilingIndex(threshold));
+			int ceiling = index.ceilingIndex(threshold);
+			for (int i = ceiling; i < index.size(); i++) {
+				assertTrue(index.getUtility(i) >= threshold);
+			}
+		}
+	}
+
+	@Test
+	public void testMaxUtilityBid() {
+		BigDecimal max = BigDecimal.ZERO;
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			max = max.max(profile.getUtility(bid));
+		}
+		assertEquals(0, max.compareTo(profile.getUtility(index.getMaxUtilityBid())));
+		assertEquals(max.doubleValue(), index.getMaxUtility(), 0);
+	}
+
+	@Test
+	public void testEmptyIndex() {
+		BidIndex empty = BidIndex.sort(new Bid[0], new double[0]);
+		assertEquals(0, empty.size());
+		assertEquals(0, empty.ceilingIndex(0.5));
+		assertNull(empty.getMaxUtilityBid());
+		assertTrue(Double.isNaN(empty.getMaxUtility()));
+	}
+
+	@Test
+	public void testSortIsStable() {
+		Random random = new Random(1);
+		int size = 1000;
+		Bid[] bids = new Bid[size];
+		double[] utilities = new double[size];
+		for (int i = 0; i < size; i++) {
+			bids[i] = new Bid(Collections.singletonMap("issue", new DiscreteValue("value" + i)));
+			// Few distinct utilities, so that there are many ties
+			utilities[i] = random.nextInt(10) / 10.0;
+		}
+		BidIndex sorted = BidIndex.sort(bids, utilities);
+		for (int i = 1; i < size; i++) {
+			assertTrue(sorted.getUtility(i - 1) <= sorted.getUtility(i));
+			if (sorted.getUtility(i - 1) == sorted.getUtility(i)) {
+				assertTrue(position(bids, sorted.getBid(i - 1)) < position(bids, sorted.getBid(i)));
+			}
+		}
+		// The first bid comes first among the bids having its utility
+		assertSame(bids[0], sorted.getBid(sorted.ceilingIndex(utilities[0])));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsortedInputRejected() {
+		new BidIndex(new Bid[] { index.getBid(1), index.getBid(0) },
+				new double[] { index.getUtility(1), index.getUtility(0) - 1 });
+	}
+
+	private static int position(Bid[] bids, Bid bid) {
+		for (int i = 0; i < bids.length; i++) {
+			if (bids[i] == bid) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,68 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import geniusweb.issuevalue.Bid;
+
+public class BidSamplerTest {
+
+	// Only the utility values matter for the sampler
+	private final BidIndex index = BidIndex.sort(new Bid[6], new double[] { 0.1, 0.0, 0.2, 0.3, 0.0, 0.4 });
+
+	@Test
+	public void testUniformInBand() {
+		BidSampler sampler = new BidSampler(index, new Random(1));
+		int[] counts = new int[index.size()];
+		for (int n = 0; n < 3000; n++) {
+			counts[sampler.sampleUniform(3, 6)]++;
+		}
+		assertEquals(0, counts[0] + counts[1] + counts[2]);
+		for (int i = 3; i < 6; i++) {
+			assertTrue(Math.abs(counts[i] - 1000) < 100);
+		}
+	}
+
+	@Test
+	public void testWeightedByUtility() {
+		BidSampler sampler = new BidSampler(index, new Random(2));
+		int[] counts = new int[index.size()];
+		for (int n = 0; n < 10000; n++) {
+			counts[sampler.sampleWeighted(0, 6)]++;
+		}
+		// Utilities 0, 0, 0.1, 0.2, 0.3, 0.4 in the index
+		assertEquals(0, counts[0] + counts[1]);
+		for (int i = 2; i < 6; i++) {
+			assertTrue(Math.abs(counts[i] - (i - 1) * 1000) < 200);
+		}
+	}
+
+	@Test
+	public void testWeightedBandWithoutUtility() {
+		BidSampler sampler = new BidSampler(index, new Random(3));
+		int[] counts = new int[index.size()];
+		for (int n = 0; n < 100; n++) {
+			counts[sampler.sampleWeighted(0, 2)]++;
+		}
+		assertTrue(counts[0] > 0 && counts[1] > 0);
+	}
+
+	@Test
+	public void testSameSeedSameDraws() {
+		BidSampler sampler1 = new BidSampler(index, new Random(42));
+		BidSampler sampler2 = new BidSampler(index, new Random(42));
+		for (int n = 0; n < 100; n++) {
+			assertEquals(sampler1.sampleWeighted(1, 6), sampler2.sampleWeighted(1, 6));
+			assertEquals(sampler1.sampleUniform(0, 4), sampler2.sampleUniform(0, 4));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyBand() {
+		new BidSampler(index, new Random()).sampleUniform(6, 6);
+	}
+}
@@ -0,0 +1,49 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConcessionStrategyTest {
+
+	private final ConcessionStrategy linear = new LinearConcession();
+	private final ConcessionStrategy boulware = new TimeDependentConcession(TimeDependentConcession.BOULWARE);
+	private final ConcessionStrategy conceder = new TimeDependentConcession(TimeDependentConcession.CONCEDER);
+
+	@Test
+	public void testLinear() {
+		assertEquals(1.0, linear.getAcceptableUtility(0), 1e-12);
+		assertEquals(0.85, linear.getAcceptableUtility(0.5), 1e-12);
+		assertEquals(0.7, linear.getAcceptableUtility(1), 1e-12);
+	}
+
+	@Test
+	public void testEndPoints() {
+		for (ConcessionStrategy concession : new ConcessionStrategy[] { boulware, conceder }) {
+			assertEquals(1.0, concession.getAcceptableUtility(0), 1e-12);
+			assertEquals(0.7, concession.getAcceptableUtility(1), 1e-12);
+		}
+	}
+
+	@Test
+	public void testExponentOneIsLinear() {
+		ConcessionStrategy timeDependent = new TimeDependentConcession(1);
+		for (double time = 0; time <= 1; time += 0.05) {
+			assertEquals(linear.getAcceptableUtility(time), timeDependent.getAcceptableUtility(time), 0);
+		}
+	}
+
+	@Test
+	public void testBoulwareConcedesLate() {
+		for (double time = 0.05; time < 1; time += 0.05) {
+			assertTrue(boulware.getAcceptableUtility(time) > linear.getAcceptableUtility(time));
+			assertTrue(conceder.getAcceptableUtility(time) < linear.getAcceptableUtility(time));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testExponentPositive() {
+		new TimeDependentConcession(0);
+	}
+}
@@ -0,0 +1,71 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+		assertEquals(0, histogram.getMax());
+	}
+
+	@Test
+	public void testBucketsAreContiguous() {
+		for (int index = 1; index < LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE_VALUE); index++) {
+			assertEquals(LatencyHistogram.highestValue(index - 1) + 1, LatencyHistogram.lowestValue(index));
+			assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.lowestValue(index)));
+			assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.highestValue(index)));
+		}
+	}
+
+	@Test
+	public void testPercentilesWithinPrecision() {
+		Random random = new Random(1);
+		long[] values = new long[10000];
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int n = 0; n < values.length; n++) {
+			// From nanoseconds to seconds
+			values[n] = (long) Math.pow(10, 9 * random.nextDouble());
+			histogram.record(values[n]);
+		}
+		Arrays.sort(values);
+		assertEquals(values.length, histogram.getCount());
+		assertEquals(values[0], histogram.getMin());
+		assertEquals(values[values.length - 1], histogram.getMax());
+		for (double percentile : new double[] { 1, 50, 90, 99, 99.9, 100 }) {
+			long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+			long actual = histogram.getPercentile(percentile);
+			assertTrue(actual >= expected);
+			assertTrue(actual - expected <= expected / 64);
+		}
+	}
+
+	@Test
+	public void testValuesBeyondRange() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-5);
+		assertEquals(2, histogram.getCount());
+		assertEquals(0, histogram.getMin());
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+}
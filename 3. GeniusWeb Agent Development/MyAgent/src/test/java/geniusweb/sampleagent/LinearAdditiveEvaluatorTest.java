@@ -0,0 +1,110 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.Value;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+/**
+ * Property test: the compiled evaluator agrees with
+ * {@link LinearAdditive#getUtility(Bid)} within
+ * {@link LinearAdditiveEvaluator#EPSILON} on every profile and bid tried.
+ */
+public class LinearAdditiveEvaluatorTest {
+
+	private static final String PROFILE = "src/test/resources/testprofile.json";
+	private final static ObjectMapper jackson = new ObjectMapper();
+
+	@Test
+	public void testTestProfile() throws IOException {
+		String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)), StandardCharsets.UTF_8);
+		LinearAdditive profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+		assertAgrees(profile, new Random(0), 100);
+	}
+
+	@Test
+	public void testRandomProfiles() throws IOException {
+		Random random = new Random(12345);
+		for (int n = 0; n < 50; n++) {
+			LinearAdditive profile = new ProfileGenerator(1 + random.nextInt(6), 2 + random.nextInt(9), 50,
+					random.nextLong()).toProfile();
+			assertAgrees(profile, random, 200);
+		}
+	}
+
+	@Test
+	public void testPartialBid() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(4, 5, 50, 7).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		LinearAdditiveEvaluator evaluator = new LinearAdditiveEvaluator(profile, codec);
+		Bid full = new AllBidsList(profile.getDomain()).get(BigInteger.valueOf(3));
+		Map<String, Value> values = new HashMap<>(full.getIssueValues());
+		values.remove(codec.getIssue(1));
+		Bid partial = new Bid(values);
+
+		assertEquals(profile.getUtility(partial).doubleValue(), evaluator.getUtility(partial),
+				LinearAdditiveEvaluator.EPSILON);
+		int[] codes = codec.encode(partial);
+		assertEquals(BidCodec.MISSING, codes[1]);
+		assertEquals(profile.getUtility(partial).doubleValue(), evaluator.getUtility(codes),
+				LinearAdditiveEvaluator.EPSILON);
+	}
+
+	@Test
+	public void testUtilityAfterChange() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(4, 5, 50, 11).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		LinearAdditiveEvaluator evaluator = new LinearAdditiveEvaluator(profile, codec);
+		Random random = new Random(11);
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			int[] codes = codec.encode(bid);
+			int issue = random.nextInt(codes.length);
+			int value = random.nextInt(codec.getValueCount(issue));
+			double utility = evaluator.getUtilityAfterChange(evaluator.getUtility(codes), issue, codes[issue], value);
+			codes[issue] = value;
+			assertEquals(profile.getUtility(codec.decode(codes)).doubleValue(), utility,
+					LinearAdditiveEvaluator.EPSILON);
+		}
+	}
+
+	@Test
+	public void testEncodeDecode() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 4, 50, 3).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			assertEquals(bid, codec.decode(codec.encode(bid)));
+		}
+	}
+
+	// Compares the evaluator with the profile on random bids of the bid space
+	private static void assertAgrees(LinearAdditive profile, Random random, int samples) {
+		BidCodec codec = new BidCodec(profile.getDomain());
+		LinearAdditiveEvaluator evaluator = new LinearAdditiveEvaluator(profile, codec);
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		int size = allBids.size().intValue();
+		int[] codes = new int[codec.getIssueCount()];
+		for (int n = 0; n < samples; n++) {
+			Bid bid = allBids.get(BigInteger.valueOf(random.nextInt(size)));
+			double expected = profile.getUtility(bid).doubleValue();
+			assertEquals(expected, evaluator.getUtility(bid), LinearAdditiveEvaluator.EPSILON);
+			codec.encode(bid, codes);
+			assertEquals(expected, evaluator.getUtility(codes), LinearAdditiveEvaluator.EPSILON);
+		}
+	}
+}
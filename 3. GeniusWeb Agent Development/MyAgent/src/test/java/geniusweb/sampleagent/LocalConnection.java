@@ -0,0 +1,60 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import geniusweb.actions.Action;
+import geniusweb.connection.ConnectionEnd;
+import geniusweb.inform.Inform;
+import geniusweb.references.Reference;
+import tudelft.utilities.listener.DefaultListenable;
+
+/**
+ * In-memory connection of one party in a {@link NegotiationSession}. Like
+ * TestConnection, but the actions are taken out by the session after each
+ * turn, and a party may send from another thread, as MyAgent does when its
+ * turn runs out of time.
+ */
+class LocalConnection extends DefaultListenable<Inform> implements ConnectionEnd<Inform, Action> {
+
+	private final ConcurrentLinkedQueue<Action> actions = new ConcurrentLinkedQueue<>();
+
+	@Override
+	public void send(Action action) throws IOException {
+		actions.add(action);
+	}
+
+	/**
+	 * @return the actions sent since the previous call, in the order they were
+	 *         sent
+	 */
+	public List<Action> takeActions() {
+		List<Action> taken = new ArrayList<>();
+		for (Action action = actions.poll(); action != null; action = actions.poll()) {
+			taken.add(action);
+		}
+		return taken;
+	}
+
+	@Override
+	public Reference getReference() {
+		return null;
+	}
+
+	@Override
+	public URI getRemoteURI() {
+		return null;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public Error getError() {
+		return null;
+	}
+}
@@ -0,0 +1,191 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class MutationEngineTest {
+
+	private LinearAdditive profile;
+	private BidCodec codec;
+	private LinearAdditiveEvaluator evaluator;
+	private AllBidsList allBids;
+	private OpponentModel model;
+	private OfferHistory offers;
+
+	@Before
+	public void before() throws IOException {
+		profile = new ProfileGenerator(5, 6, 0, 21).toProfile();
+		codec = new BidCodec(profile.getDomain());
+		evaluator = new LinearAdditiveEvaluator(profile, codec);
+		allBids = new AllBidsList(profile.getDomain());
+		model = new OpponentModel(codec);
+		offers = new OfferHistory(codec);
+		Random random = new Random(21);
+		for (int n = 0; n < 30; n++) {
+			Bid bid = allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue())));
+			model.update(bid);
+			offers.add(bid);
+		}
+	}
+
+	@Test
+	public void testStaysAboveThreshold() {
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, Long.MAX_VALUE);
+		Random random = new Random(1);
+		for (int n = 0; n < 200; n++) {
+			int[] codes = codec.encode(allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue()))));
+			double utility = evaluator.getUtility(codes);
+			double threshold = random.nextDouble();
+			double mutated = engine.mutate(codes, utility, threshold, offers, random);
+			assertEquals(evaluator.getUtility(codes), mutated, LinearAdditiveEvaluator.EPSILON);
+			assertTrue(mutated >= Math.min(utility, threshold) - LinearAdditiveEvaluator.EPSILON);
+		}
+	}
+
+	@Test
+	public void testBestCombinationForOpponent() {
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, Long.MAX_VALUE);
+		int[] codes = codec.encode(allBids.get(BigInteger.valueOf(7)));
+		double utility = evaluator.getUtility(codes);
+		double threshold = utility - 0.1;
+
+		// Opponent utility of the best acceptable combination, by full evaluation of each one
+		double best = model.getUtility(codes);
+		int[] mutated = codes.clone();
+		for (int offer = 0; offer < offers.size(); offer++) {
+			for (int issue = 0; issue < codes.length; issue++) {
+				mutated[issue] = offers.getValueOrdinal(offer, issue);
+				if (evaluator.getUtility(mutated) >= threshold) {
+					best = Math.max(best, model.getUtility(mutated));
+				}
+				mutated[issue] = codes[issue];
+			}
+		}
+
+		engine.mutate(codes, utility, threshold, offers, new Random(2));
+		assertEquals(best, model.getUtility(codes), 1e-12);
+		assertEquals(offers.getDistinctCount() * codes.length, engine.getLastCombinationCount());
+	}
+
+	@Test
+	public void testRepeatedOfferTriedOnce() {
+		// A Boulware opponent repeating its offer
+		OfferHistory repeated = new OfferHistory(codec);
+		for (int n = 0; n < 100; n++) {
+			repeated.add(allBids.get(BigInteger.valueOf(11)));
+		}
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, Long.MAX_VALUE);
+		int[] codes = codec.encode(allBids.get(BigInteger.valueOf(3)));
+		engine.mutate(codes, evaluator.getUtility(codes), 0, repeated, new Random(7));
+		assertEquals(codes.length, engine.getLastCombinationCount());
+	}
+
+	@Test
+	public void testBestOverSeveralBases() {
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, Long.MAX_VALUE);
+		Random random = new Random(8);
+		for (int n = 0; n < 50; n++) {
+			int[][] bases = new int[3][];
+			double[] utilities = new double[3];
+			for (int base = 0; base < 3; base++) {
+				bases[base] = codec.encode(allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue()))));
+				utilities[base] = evaluator.getUtility(bases[base]);
+			}
+			double threshold = random.nextDouble();
+
+			// Opponent utility of the best acceptable result, by full evaluation of each one
+			double best = model.getUtility(bases[0]);
+			for (int base = 0; base < 3; base++) {
+				double floor = base == 0 ? Math.min(utilities[0], threshold) : threshold;
+				if (utilities[base] >= floor) {
+					best = Math.max(best, model.getUtility(bases[base]));
+				}
+				int[] mutated = bases[base].clone();
+				for (int offer = 0; offer < offers.size(); offer++) {
+					for (int issue = 0; issue < mutated.length; issue++) {
+						mutated[issue] = offers.getValueOrdinal(offer, issue);
+						if (evaluator.getUtility(mutated) >= floor) {
+							best = Math.max(best, model.getUtility(mutated));
+						}
+						mutated[issue] = bases[base][issue];
+					}
+				}
+			}
+
+			double floor = Math.min(utilities[0], threshold);
+			double result = engine.mutate(bases, utilities, 3, threshold, offers, new Random(n), 0);
+			assertEquals(best, model.getUtility(bases[0]), 1e-9);
+			assertEquals(evaluator.getUtility(bases[0]), result, LinearAdditiveEvaluator.EPSILON);
+			assertTrue(result >= (engine.getLastBase() == 0 ? floor : threshold) - LinearAdditiveEvaluator.EPSILON);
+			assertEquals(3 * offers.getDistinctCount() * bases[0].length, engine.getLastCombinationCount());
+		}
+	}
+
+	@Test
+	public void testCombinationBound() {
+		MutationEngine engine = new MutationEngine(evaluator, model, 10, Long.MAX_VALUE);
+		int[] codes = codec.encode(allBids.get(BigInteger.valueOf(3)));
+		engine.mutate(codes, evaluator.getUtility(codes), 0, offers, new Random(3));
+		assertEquals(10, engine.getLastCombinationCount());
+	}
+
+	@Test
+	public void testTimeBound() {
+		// The clock is read every 64 combinations, the budget is used up at the first read
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, 0);
+		int[] codes = codec.encode(allBids.get(BigInteger.valueOf(3)));
+		engine.mutate(codes, evaluator.getUtility(codes), 0, offers, new Random(4));
+		assertEquals(64, engine.getLastCombinationCount());
+		assertTrue(engine.isLastCutByTime());
+	}
+
+	@Test
+	public void testLimitRepeatsTimeCut() {
+		// A search cut by its time budget is repeated by a search limited to its combination count
+		MutationEngine timed = new MutationEngine(evaluator, model, 1000000, 0);
+		MutationEngine limited = new MutationEngine(evaluator, model, 1000000, 0);
+		Random random = new Random(5);
+		for (int n = 0; n < 50; n++) {
+			int[] codes = codec.encode(allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue()))));
+			int[] replayed = codes.clone();
+			double utility = evaluator.getUtility(codes);
+			double threshold = random.nextDouble();
+			long seed = random.nextLong();
+			double mutated = timed.mutate(codes, utility, threshold, offers, new Random(seed));
+			assertTrue(timed.isLastCutByTime());
+			double repeated = limited.mutate(replayed, utility, threshold, offers, new Random(seed),
+					timed.getLastCombinationCount());
+			assertFalse(limited.isLastCutByTime());
+			assertEquals(timed.getLastCombinationCount(), limited.getLastCombinationCount());
+			assertArrayEquals(codes, replayed);
+			assertEquals(mutated, repeated, 0);
+		}
+	}
+
+	@Test
+	public void testLimitIgnoresTimeBudget() {
+		MutationEngine engine = new MutationEngine(evaluator, model, 1000000, 0);
+		int[] codes = codec.encode(allBids.get(BigInteger.valueOf(3)));
+		engine.mutate(codes, evaluator.getUtility(codes), 0, offers, new Random(6), Integer.MAX_VALUE);
+		assertEquals(offers.getDistinctCount() * codes.length, engine.getLastCombinationCount());
+		assertFalse(engine.isLastCutByTime());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoCombinations() {
+		new MutationEngine(evaluator, model, 0, Long.MAX_VALUE);
+	}
+}
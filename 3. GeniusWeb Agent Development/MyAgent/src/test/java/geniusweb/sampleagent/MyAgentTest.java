@@ -3,7 +3,9 @@ package geniusweb.sampleagent;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -19,10 +21,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import org.junit.Before;
@@ -36,6 +40,7 @@ import geniusweb.actions.Accept;
 import geniusweb.actions.Action;
 import geniusweb.actions.EndNegotiation;
 import geniusweb.actions.FileLocation;
+import geniusweb.actions.LearningDone;
 import geniusweb.actions.Offer;
 import geniusweb.actions.PartyId;
 import geniusweb.bidspace.AllBidsList;
@@ -182,6 +187,20 @@ public class MyAgentTest {
 		assertTrue(connection.getActions().get(0) instanceof Offer);
 	}
 
+	@Test
+	public void testAgentHasFirstTurnStreaming() throws URISyntaxException {
+		// 14 bids exceed the threshold, so only the best 3 bids are kept
+		Parameters streamingParameters = parameters.with(MyAgent.STREAMING_THRESHOLD_PARAMETER, 5)
+				.with(MyAgent.STREAMING_TOP_K_PARAMETER, 3);
+		Settings settingsStreaming = new Settings(PARTY1, new ProfileRef(new URI("file:" + PROFILE)),
+				new ProtocolRef(SAOP), progress, streamingParameters);
+		party.connect(connection);
+		party.notifyChange(settingsStreaming);
+		party.notifyChange(new YourTurn());
+		assertEquals(1, connection.getActions().size());
+		assertTrue(connection.getActions().get(0) instanceof Offer);
+	}
+
 	@Test
 	public void testAgentFinishedLogs() {
 		// this log output is optional, this is to show how to check log
@@ -196,6 +215,254 @@ public class MyAgentTest {
 		// verify(reporter).log(eq(Level.INFO), eq("Final outcome:Finished[agree]"));
 	}
 
+	@Test
+	public void testLatencyMetricsWrittenAtFinished() throws IOException {
+		Path metricsFile = Files.createTempFile("latency", ".csv");
+		Settings settingsMetrics = new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP), progress,
+				parameters.with(MyAgent.METRICS_FILE_PARAMETER, metricsFile.toString()));
+		party.connect(connection);
+		party.notifyChange(settingsMetrics);
+		party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+		party.notifyChange(new YourTurn());
+		TurnMetrics metrics = ((MyAgent) party).getMetrics();
+		assertEquals(1, metrics.getHistogram(TurnMetrics.Phase.INIT).getCount());
+		assertEquals(1, metrics.getHistogram(TurnMetrics.Phase.MY_TURN).getCount());
+		assertEquals(1, metrics.getHistogram(TurnMetrics.Phase.SEND).getCount());
+
+		party.notifyChange(new Finished(mock(Agreements.class)));
+		List<String> lines = Files.readAllLines(metricsFile, StandardCharsets.UTF_8);
+		assertEquals(TurnMetrics.CSV_HEADER, lines.get(0));
+		assertEquals(TurnMetrics.Phase.values().length + 1, lines.size());
+		assertTrue(lines.get(2).startsWith("MY_TURN,1,"));
+		Files.delete(metricsFile);
+	}
+
+	@Test
+	public void testNoLatencyMetricsWithoutParameter() throws IOException {
+		// Without the metricsFile parameter no latency CSV is written, not even to the temporary directory
+		Path defaultFile = Paths.get(System.getProperty("java.io.tmpdir"), "geniusweb",
+				"MyAgent-" + PARTY1 + "-latency.csv");
+		Files.deleteIfExists(defaultFile);
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+		party.notifyChange(new YourTurn());
+		party.notifyChange(new Finished(mock(Agreements.class)));
+		assertEquals(1, ((MyAgent) party).getMetrics().getHistogram(TurnMetrics.Phase.MY_TURN).getCount());
+		assertFalse(Files.exists(defaultFile));
+	}
+
+	@Test
+	public void testIndexLoadedInNextSession() {
+		File persistentPath = new FileLocation(UUID.fromString((String) parameters.get("persistentstate"))).getFile();
+		testMockNegotiation();
+		party.terminate();
+		assertTrue(persistentPath.exists());
+
+		// The offers of the session are added to the statistics in the Learn phase
+		party = new MyAgent();
+		party.connect(connection);
+		party.notifyChange(settingsLearn);
+		party.terminate();
+
+		party = new MyAgent();
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		PersistentState state = ((MyAgent) party).getPersistentState();
+		assertNotNull(state.getBidIndex(PersistentState.COMPLETE));
+		assertEquals(1, state.getStatistics().getSessionCount());
+		assertEquals(1, state.getStatistics().getOfferCount());
+		party.terminate();
+	}
+
+	@Test
+	public void testLoadedIndexOnHeap() {
+		testMockNegotiation();
+		party.terminate();
+
+		party = new MyAgent();
+		party.connect(connection);
+		party.notifyChange(new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP), progress,
+				parameters.with(MyAgent.OFF_HEAP_INDEX_PARAMETER, false)));
+		UtilityIndex stored = ((MyAgent) party).getPersistentState().getBidIndex(PersistentState.COMPLETE);
+		UtilityIndex index = ((MyAgent) party).getBidIndex();
+		assertTrue(stored instanceof OffHeapBidIndex);
+		assertTrue(index instanceof BidIndex);
+		assertEquals(stored.size(), index.size());
+		for (int n = 0; n < index.size(); n++) {
+			assertEquals(stored.getBid(n), index.getBid(n));
+			assertEquals(stored.getUtility(n), index.getUtility(n), 0);
+		}
+		party.terminate();
+	}
+
+	@Test
+	public void testLearnFoldsNegotiationData() {
+		File dataPath = new FileLocation(
+				UUID.fromString(((List<String>) parameters.get("negotiationdata")).get(0))).getFile();
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		for (int round = 0; round < 3; round++) {
+			party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+			party.notifyChange(new YourTurn());
+		}
+		party.notifyChange(new Finished(new Agreements()));
+		party.terminate();
+		assertTrue(dataPath.exists());
+
+		TestConnection learnConnection = new TestConnection();
+		party = new MyAgent();
+		party.connect(learnConnection);
+		party.notifyChange(settingsLearn);
+		assertEquals(1, learnConnection.getActions().size());
+		assertTrue(learnConnection.getActions().get(0) instanceof LearningDone);
+		// The bid space is not enumerated in the Learn phase
+		assertEquals(0, ((MyAgent) party).getMetrics().getHistogram(TurnMetrics.Phase.INIT).getCount());
+		OpponentStatistics statistics = ((MyAgent) party).getPersistentState().getStatistics();
+		assertEquals(1, statistics.getSessionCount());
+		assertEquals(3, statistics.getOfferCount());
+		party.terminate();
+	}
+
+	@Test
+	public void testFallbackOfferAtDeadline() {
+		// The deadline has passed: the cached candidate is offered without searching
+		when(progress.getTerminationTime()).thenReturn(new Date());
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+		party.notifyChange(new YourTurn());
+		assertEquals(1, connection.getActions().size());
+		assertTrue(connection.getActions().get(0) instanceof Offer);
+		assertEquals(0, ((MyAgent) party).getMetrics().getHistogram(TurnMetrics.Phase.MAKE_AN_OFFER).getCount());
+	}
+
+	@Test
+	public void testAcceptInsideSafetyMargin() {
+		// At the end of the negotiation an offer above the concession curve is accepted, not countered
+		when(progress.getTerminationTime()).thenReturn(new Date());
+		when(progress.get(anyLong())).thenReturn(1.0);
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		Bid bidOpponent = findBidBetween(0.75, 1.0);
+		party.notifyChange(new ActionDone(new Offer(otherparty, bidOpponent)));
+		party.notifyChange(new YourTurn());
+		assertEquals(1, connection.getActions().size());
+		assertEquals(new Accept(PARTY1, bidOpponent), connection.getActions().get(0));
+		party.terminate();
+	}
+
+	@Test
+	public void testNextOfferPreparedDuringOpponentTurn() {
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		Bid bidOpponent = findBadBid();
+		for (int round = 1; round <= 5; round++) {
+			party.notifyChange(new ActionDone(new Offer(otherparty, bidOpponent)));
+			party.notifyChange(new YourTurn());
+			// Exactly one action per turn, the preparation does not send anything
+			assertEquals(round, connection.getActions().size());
+			assertTrue(connection.getActions().get(round - 1) instanceof Offer);
+		}
+		// The time does not move with the mocked progress, so every prepared offer after the first turn is valid
+		OfferSpeculation speculation = ((MyAgent) party).getSpeculation();
+		assertEquals(4, speculation.getHits());
+		assertEquals(0, speculation.getMisses());
+		party.terminate();
+	}
+
+	@Test
+	public void testConcedesFromFirstOpponentOffer() {
+		// Late in the negotiation: the threshold of the linear concession is 0.73
+		when(progress.get(anyLong())).thenReturn(0.9);
+		party.connect(connection);
+		party.notifyChange(settingsSAOP);
+		party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+		party.notifyChange(new YourTurn());
+		party.terminate();
+
+		ParetoFrontier frontier = ((MyAgent) party).getParetoFrontier();
+		assertEquals(1, frontier.getBuiltAtOfferCount());
+		assertTrue(frontier.size() > 1);
+		// The frontier bid selected for the threshold is not the bid best for us
+		assertTrue(frontier.ceilingRank(0.73) < frontier.size() - 1);
+		assertEquals(1, connection.getActions().size());
+		Bid offered = ((Offer) connection.getActions().get(0)).getBid();
+		assertTrue(profile.getUtility(offered).doubleValue() >= 0.73 - 1e-9);
+	}
+
+	@Test
+	public void testOneHourDeadlineInVirtualTime() {
+		// Each turn reads the clock once and moves it a minute forward, so the hour passes in 60 turns
+		VirtualClock clock = new VirtualClock(1600000000000L, TimeUnit.MINUTES.toMillis(1));
+		party = new MyAgent(mock(Reporter.class), clock);
+		party.connect(connection);
+		party.notifyChange(new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP),
+				clock.progressTime(TimeUnit.HOURS.toMillis(1)), parametersEmpty));
+		Bid bidOpponent = findBidBetween(0.75, 0.9);
+		double utility = profile.getUtility(bidOpponent).doubleValue();
+		int turn = 0;
+		while (turn < 60) {
+			party.notifyChange(new ActionDone(new Offer(otherparty, bidOpponent)));
+			party.notifyChange(new YourTurn());
+			assertEquals(turn + 1, connection.getActions().size());
+			if (connection.getActions().get(turn) instanceof Accept) {
+				break;
+			}
+			turn++;
+		}
+		// Accepted in the first turn in which the concession threshold is below the utility of the bid
+		int expected = 0;
+		while (0.7 + (1 - expected / 60.0) * 0.3 >= utility) {
+			expected++;
+		}
+		assertEquals(expected, turn);
+		party.terminate();
+	}
+
+	@Test
+	public void testBoaComponentsSelectedByParameters() {
+		// At time 0 no bid is above the concession curve but the best ones, the time dependent bidding offers the best
+		party.connect(connection);
+		party.notifyChange(new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP), progress,
+				parametersEmpty.with(MyAgent.BIDDING_PARAMETER, "timeDependent")
+						.with(MyAgent.ACCEPTANCE_PARAMETER, "combi").with(MyAgent.CONCESSION_PARAMETER, "boulware")));
+		party.notifyChange(new ActionDone(new Offer(otherparty, findBadBid())));
+		party.notifyChange(new YourTurn());
+		assertEquals(1, connection.getActions().size());
+		Bid offered = ((Offer) connection.getActions().get(0)).getBid();
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			assertTrue(profile.getUtility(offered).compareTo(profile.getUtility(bid)) >= 0);
+		}
+		// The Pareto search is not used, so nothing is prepared for it
+		assertNull(((MyAgent) party).getSpeculation());
+		party.terminate();
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testUnknownBoaComponent() {
+		party.connect(connection);
+		party.notifyChange(new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP), progress,
+				parametersEmpty.with(MyAgent.BIDDING_PARAMETER, "unknown")));
+	}
+
+	@Test
+	public void testSeededFirstOffersReproducible() throws URISyntaxException {
+		Settings settingsSeeded = new Settings(PARTY1, settingsSAOP.getProfile(), new ProtocolRef(SAOP), progress,
+				parameters.with(MyAgent.SEED_PARAMETER, 7).with(MyAgent.WEIGHTED_SAMPLING_PARAMETER, true));
+		TestConnection otherConnection = new TestConnection();
+		DefaultParty other = new MyAgent();
+		party.connect(connection);
+		other.connect(otherConnection);
+		party.notifyChange(settingsSeeded);
+		other.notifyChange(settingsSeeded);
+		party.notifyChange(new YourTurn());
+		other.notifyChange(new YourTurn());
+		assertEquals(connection.getActions(), otherConnection.getActions());
+		party.terminate();
+		other.terminate();
+	}
+
 	@Test
 	public void testGetCapabilities() {
 		assertTrue(party.getCapabilities().getBehaviours().contains(SAOP));
@@ -252,6 +519,16 @@ public class MyAgentTest {
 		party.terminate();
 	}
 
+	private Bid findBidBetween(double low, double high) {
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			double utility = profile.getUtility(bid).doubleValue();
+			if (utility > low && utility < high) {
+				return bid;
+			}
+		}
+		throw new IllegalStateException("Test can not be done: there is no bid with utility in " + low + ".." + high);
+	}
+
 	private Bid findBadBid() {
 		for (Bid bid : new AllBidsList(profile.getDomain())) {
 			if (profile.getUtility(bid).compareTo(BigDecimal.valueOf(0.3)) < 0) {
@@ -0,0 +1,109 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class NegotiationDataTest {
+
+	private File file;
+	private LinearAdditive profile;
+	private BidCodec codec;
+	private long profileHash;
+	private AllBidsList allBids;
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("negotiationdata", ".bin").toFile();
+		profile = new ProfileGenerator(4, 5, 50, 9).toProfile();
+		codec = new BidCodec(profile.getDomain());
+		profileHash = PersistentState.profileHash(profile.getName(), new LinearAdditiveEvaluator(profile, codec));
+		allBids = new AllBidsList(profile.getDomain());
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testFoldSameAsModel() throws IOException {
+		OpponentModel model = new OpponentModel(codec);
+		Random random = new Random(9);
+		// A small buffer, so that most events are written while the next ones are recorded
+		try (SessionRecorder recorder = new SessionRecorder(file, profileHash, codec, 64)) {
+			for (int n = 0; n < 1000; n++) {
+				Bid bid = allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue())));
+				recorder.offer(NegotiationData.OPPONENT, bid);
+				model.update(bid);
+				// Our own offers are not counted
+				recorder.turn(n / 1000.0);
+				recorder.offer(NegotiationData.US, allBids.get(BigInteger.ZERO));
+			}
+			recorder.finished(null);
+		}
+
+		OpponentStatistics folded = new OpponentStatistics(codec);
+		assertTrue(NegotiationData.fold(file, profileHash, codec, folded));
+		OpponentStatistics expected = new OpponentStatistics(codec);
+		expected.add(model);
+		assertEquals(expected.getSessionCount(), folded.getSessionCount());
+		assertEquals(expected.getOfferCount(), folded.getOfferCount());
+		for (int i = 0; i < codec.getIssueCount(); i++) {
+			for (int v = 0; v < codec.getValueCount(i); v++) {
+				assertEquals(expected.getValueCount(i, v), folded.getValueCount(i, v));
+			}
+		}
+	}
+
+	@Test
+	public void testOtherProfileSkipped() throws IOException {
+		new SessionRecorder(file, profileHash + 1, codec, SessionRecorder.DEFAULT_BUFFER_SIZE).close();
+		OpponentStatistics statistics = new OpponentStatistics(codec);
+		assertFalse(NegotiationData.fold(file, profileHash, codec, statistics));
+		assertEquals(0, statistics.getSessionCount());
+	}
+
+	@Test
+	public void testTruncatedFileAddsNothing() throws IOException {
+		try (SessionRecorder recorder = new SessionRecorder(file, profileHash, codec,
+				SessionRecorder.DEFAULT_BUFFER_SIZE)) {
+			for (int n = 0; n < 10; n++) {
+				recorder.offer(NegotiationData.OPPONENT, allBids.get(BigInteger.valueOf(n)));
+			}
+		}
+		try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+			truncated.setLength(truncated.length() - 1);
+		}
+		OpponentStatistics statistics = new OpponentStatistics(codec);
+		try {
+			NegotiationData.fold(file, profileHash, codec, statistics);
+			fail("Truncated file was read");
+		} catch (IOException e) {
+			assertEquals(0, statistics.getSessionCount());
+			assertEquals(0, statistics.getOfferCount());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotNegotiationData() throws IOException {
+		Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		NegotiationData.fold(file, profileHash, codec, new OpponentStatistics(codec));
+	}
+}
@@ -0,0 +1,265 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.websocket.DeploymentException;
+
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Agreements;
+import geniusweb.inform.Finished;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.issuevalue.Bid;
+import geniusweb.party.DefaultParty;
+import geniusweb.profile.utilityspace.UtilitySpace;
+import geniusweb.profileconnection.ProfileConnectionFactory;
+import geniusweb.profileconnection.ProfileInterface;
+import geniusweb.progress.ProgressRounds;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+import tudelft.utilities.logging.Reporter;
+
+/**
+ * One bilateral SAOP negotiation between two parties, run in-process on the
+ * calling thread over {@link LocalConnection}s. The parties take turns, the
+ * first one starting, until a party accepts the last offer, ends the
+ * negotiation, or the deadline in rounds is reached. Every action is informed
+ * to both parties, as the SAOP protocol does. Each session creates its own
+ * parties, connections and profiles, so sessions can run in parallel.
+ * <p>
+ * A party that throws, sends no action or several actions in a turn, or
+ * accepts a bid that was not the last offer ends the session without
+ * agreement, with an error in the result.
+ */
+public class NegotiationSession implements Callable<NegotiationSession.Result> {
+
+	// Wall clock limit given in the ProgressRounds, the deadline in rounds comes first
+	private static final long TIME_LIMIT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * A party of the session: how to create it, its profile and its parameters.
+	 */
+	public static class Participant {
+		private final String name;
+		private final Supplier<DefaultParty> factory;
+		private final URI profile;
+		private final Parameters parameters;
+
+		/**
+		 * @param name       prefix of the PartyId, letters and digits only
+		 * @param factory    creates a new party for every session
+		 * @param profile    file: URI of the profile of the party
+		 * @param parameters parameters given to the party in the Settings
+		 */
+		public Participant(String name, Supplier<DefaultParty> factory, URI profile, Parameters parameters) {
+			this.name = name;
+			this.factory = factory;
+			this.profile = profile;
+			this.parameters = parameters;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Outcome of a session. The utilities are 0 if there is no agreement.
+	 */
+	public static class Result {
+		private final int sessionId;
+		private final Bid agreement;
+		private final double[] utilities;
+		private final int rounds;
+		private final long elapsedNanos;
+		private final String error;
+
+		Result(int sessionId, Bid agreement, double[] utilities, int rounds, long elapsedNanos, String error) {
+			this.sessionId = sessionId;
+			this.agreement = agreement;
+			this.utilities = utilities;
+			this.rounds = rounds;
+			this.elapsedNanos = elapsedNanos;
+			this.error = error;
+		}
+
+		public int getSessionId() {
+			return sessionId;
+		}
+
+		public boolean hasAgreement() {
+			return agreement != null;
+		}
+
+		/**
+		 * @return the agreed bid, null if there is no agreement
+		 */
+		public Bid getAgreement() {
+			return agreement;
+		}
+
+		/**
+		 * @param party 0 for the first party, 1 for the second one
+		 * @return utility of the agreement for the party according to its profile
+		 */
+		public double getUtility(int party) {
+			return utilities[party];
+		}
+
+		/**
+		 * @return number of rounds started, a round being a turn of each party
+		 */
+		public int getRounds() {
+			return rounds;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return what went wrong, null if the session ended normally
+		 */
+		public String getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return "session " + sessionId + ": " + (agreement == null ? "no agreement" : "agreement " + agreement)
+					+ ", utilities " + utilities[0] + " " + utilities[1] + ", rounds " + rounds
+					+ (error == null ? "" : ", error " + error);
+		}
+	}
+
+	private final int sessionId;
+	private final Participant[] participants;
+	private final int deadlineRounds;
+	private final Reporter reporter;
+
+	/**
+	 * @param sessionId      id of the session, part of the PartyIds so that the
+	 *                       parties of different sessions do not share files
+	 * @param first          party taking the first turn
+	 * @param second         the other party
+	 * @param deadlineRounds number of rounds after which the session ends without
+	 *                       agreement
+	 * @param reporter       used to read the profiles
+	 */
+	public NegotiationSession(int sessionId, Participant first, Participant second, int deadlineRounds,
+			Reporter reporter) {
+		if (deadlineRounds <= 0) {
+			throw new IllegalArgumentException("Deadline must be at least 1 round but is " + deadlineRounds);
+		}
+		this.sessionId = sessionId;
+		this.participants = new Participant[] { first, second };
+		this.deadlineRounds = deadlineRounds;
+		this.reporter = reporter;
+	}
+
+	@Override
+	public Result call() throws IOException, DeploymentException {
+		long start = System.nanoTime();
+		UtilitySpace[] profiles = new UtilitySpace[2];
+		PartyId[] ids = new PartyId[2];
+		DefaultParty[] parties = new DefaultParty[2];
+		LocalConnection[] connections = new LocalConnection[2];
+		for (int n = 0; n < 2; n++) {
+			profiles[n] = readProfile(participants[n].profile);
+			ids[n] = new PartyId(participants[n].name + "s" + sessionId);
+			connections[n] = new LocalConnection();
+		}
+
+		Bid lastOffer = null;
+		Bid agreement = null;
+		int turns = 0;
+		String error = null;
+		try {
+			Date end = new Date(System.currentTimeMillis() + TIME_LIMIT_MILLIS);
+			for (int n = 0; n < 2; n++) {
+				parties[n] = participants[n].factory.get();
+				parties[n].connect(connections[n]);
+				parties[n].notifyChange(new Settings(ids[n], new ProfileRef(participants[n].profile),
+						new ProtocolRef("SAOP"), new ProgressRounds(deadlineRounds, 0, end), participants[n].parameters));
+			}
+			while (turns < 2 * deadlineRounds) {
+				int party = turns % 2;
+				turns++;
+				parties[party].notifyChange(new YourTurn());
+				List<Action> actions = connections[party].takeActions();
+				if (actions.size() != 1) {
+					error = ids[party] + " sent " + actions.size() + " actions in one turn";
+					break;
+				}
+				Action action = actions.get(0);
+				for (DefaultParty informed : parties) {
+					informed.notifyChange(new ActionDone(action));
+				}
+				if (action instanceof Offer) {
+					lastOffer = ((Offer) action).getBid();
+				} else if (action instanceof Accept) {
+					Bid accepted = ((Accept) action).getBid();
+					if (lastOffer == null || !lastOffer.equals(accepted)) {
+						error = ids[party] + " accepted a bid that was not offered: " + accepted;
+					} else {
+						agreement = accepted;
+					}
+					break;
+				} else {
+					// EndNegotiation
+					break;
+				}
+			}
+			finish(parties, ids, agreement);
+		} catch (RuntimeException e) {
+			error = e.toString();
+			agreement = null;
+		} finally {
+			for (DefaultParty party : parties) {
+				if (party != null) {
+					party.terminate();
+				}
+			}
+		}
+
+		double[] utilities = new double[2];
+		if (agreement != null) {
+			for (int n = 0; n < 2; n++) {
+				utilities[n] = profiles[n].getUtility(agreement).doubleValue();
+			}
+		}
+		return new Result(sessionId, agreement, utilities, (turns + 1) / 2, System.nanoTime() - start, error);
+	}
+
+	private static void finish(DefaultParty[] parties, PartyId[] ids, Bid agreement) {
+		Map<PartyId, Bid> agreed = new HashMap<>();
+		if (agreement != null) {
+			for (PartyId id : ids) {
+				agreed.put(id, agreement);
+			}
+		}
+		Finished finished = new Finished(new Agreements(agreed));
+		for (DefaultParty party : parties) {
+			party.notifyChange(finished);
+		}
+	}
+
+	private UtilitySpace readProfile(URI profile) throws IOException, DeploymentException {
+		try (ProfileInterface profileint = ProfileConnectionFactory.create(profile, reporter)) {
+			return (UtilitySpace) profileint.getProfile();
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class OffHeapBidIndexTest {
+
+	private Path file;
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("bidindex", ".index");
+	}
+
+	@After
+	public void after() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testPackedBids() throws IOException {
+		checkSameAsHeapIndex(new ProfileGenerator(4, 5, 50, 1).toProfile(), 625);
+	}
+
+	@Test
+	public void testUnpackedBids() throws IOException {
+		// 14 issues of 20 values do not fit into a long, only the first bids are indexed
+		checkSameAsHeapIndex(new ProfileGenerator(14, 20, 0, 2).toProfile(), 1000);
+	}
+
+	@Test
+	public void testEmptyIndex() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		OffHeapBidIndex index = OffHeapBidIndex.create(file, BidIndex.sort(new Bid[0], new double[0]), codec);
+		assertEquals(0, index.size());
+		assertEquals(0, index.ceilingIndex(0.5));
+		assertTrue(Double.isNaN(index.getMaxUtility()));
+		assertNull(index.getMaxUtilityBid());
+	}
+
+	@Test
+	public void testSameParetoFrontier() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 6, 0, 3).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		BidIndex heapIndex = buildIndex(profile, 216);
+		OffHeapBidIndex offHeapIndex = OffHeapBidIndex.create(file, heapIndex, codec);
+		OpponentModel model = new OpponentModel(codec);
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		for (int n = 0; n < 20; n++) {
+			model.update(allBids.get(BigInteger.valueOf(n * 7 % 216)));
+		}
+
+		ParetoFrontier heapFrontier = new ParetoFrontier(heapIndex, codec, 1);
+		heapFrontier.refresh(model);
+		ParetoFrontier offHeapFrontier = new ParetoFrontier(offHeapIndex, codec, 1);
+		offHeapFrontier.refresh(model);
+		assertEquals(heapFrontier.size(), offHeapFrontier.size());
+		for (int k = 0; k < heapFrontier.size(); k++) {
+			assertEquals(heapFrontier.getIndexPosition(k), offHeapFrontier.getIndexPosition(k));
+		}
+	}
+
+	private void checkSameAsHeapIndex(LinearAdditive profile, int bids) throws IOException {
+		BidCodec codec = new BidCodec(profile.getDomain());
+		BidIndex heapIndex = buildIndex(profile, bids);
+		OffHeapBidIndex index = OffHeapBidIndex.create(file, heapIndex, codec);
+		assertEquals(OffHeapBidIndex.byteSize(bids, codec), Files.size(file));
+
+		assertEquals(heapIndex.size(), index.size());
+		assertEquals(heapIndex.getMaxUtility(), index.getMaxUtility(), 0);
+		assertEquals(heapIndex.getMaxUtilityBid(), index.getMaxUtilityBid());
+		int[] codes = new int[codec.getIssueCount()];
+		for (int n = 0; n < heapIndex.size(); n++) {
+			assertEquals(heapIndex.getUtility(n), index.getUtility(n), 0);
+			assertEquals(heapIndex.getBid(n), index.getBid(n));
+			index.copyCodes(n, codec, codes);
+			assertArrayEquals(codec.encode(heapIndex.getBid(n)), codes);
+		}
+		for (double threshold = -0.05; threshold <= 1.05; threshold += 0.01) {
+			assertEquals(heapIndex.ceilingIndex(threshold), index.ceilingIndex(threshold));
+		}
+	}
+
+	// Index of the first bids of the bid space
+	private static BidIndex buildIndex(LinearAdditive profile, int bids) {
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		Bid[] indexed = new Bid[bids];
+		double[] utilities = new double[bids];
+		for (int n = 0; n < bids; n++) {
+			indexed[n] = allBids.get(BigInteger.valueOf(n));
+			utilities[n] = profile.getUtility(indexed[n]).doubleValue();
+		}
+		return BidIndex.sort(indexed, utilities);
+	}
+}
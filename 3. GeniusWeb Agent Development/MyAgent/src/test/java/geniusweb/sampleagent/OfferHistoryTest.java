@@ -0,0 +1,80 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class OfferHistoryTest {
+
+	@Test
+	public void testPackedDomain() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(4, 6, 50, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		assertTrue(codec.isPackable());
+		checkHistory(profile, codec);
+	}
+
+	@Test
+	public void testUnpackedDomain() throws IOException {
+		// 14 issues of 20 values need 14 * 5 = 70 bits, more than a long
+		LinearAdditive profile = new ProfileGenerator(14, 20, 0, 2).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		assertFalse(codec.isPackable());
+		checkHistory(profile, codec);
+	}
+
+	@Test
+	public void testPackUnpack() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(5, 7, 50, 3).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		int[] codes = new int[codec.getIssueCount()];
+		for (Bid bid : new AllBidsList(profile.getDomain())) {
+			int[] expected = codec.encode(bid);
+			codec.unpack(codec.pack(expected), codes);
+			assertArrayEquals(expected, codes);
+		}
+		codes[2] = BidCodec.MISSING;
+		assertEquals(BidCodec.MISSING, codec.unpack(codec.pack(codes), 2));
+	}
+
+	// Adds many random bids, with repetitions, and checks they are all stored and interned
+	private static void checkHistory(LinearAdditive profile, BidCodec codec) {
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		Random random = new Random(4);
+		OfferHistory history = new OfferHistory(codec);
+		List<Bid> offered = new ArrayList<>();
+		for (int n = 0; n < 1000; n++) {
+			// Few distinct bids, so that most of the offers are repetitions
+			Bid bid = allBids.get(BigInteger.valueOf(random.nextInt(50)));
+			offered.add(bid);
+			history.add(bid);
+		}
+		assertEquals(1000, history.size());
+		assertTrue(history.getDistinctCount() <= 50);
+
+		int[] codes = new int[codec.getIssueCount()];
+		for (int n = 0; n < offered.size(); n++) {
+			history.copyOffer(n, codes);
+			assertEquals(offered.get(n), codec.decode(codes));
+			for (int issue = 0; issue < codec.getIssueCount(); issue++) {
+				assertEquals(codes[issue], history.getValueOrdinal(n, issue));
+			}
+			for (int m = 0; m < n; m++) {
+				assertEquals(offered.get(n).equals(offered.get(m)), history.getId(n) == history.getId(m));
+			}
+		}
+	}
+}
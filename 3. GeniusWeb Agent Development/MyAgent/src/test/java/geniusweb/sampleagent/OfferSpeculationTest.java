@@ -0,0 +1,97 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class OfferSpeculationTest {
+
+	private AllBidsList allBids;
+	private OpponentModel model;
+	private ParetoFrontier frontier;
+	private OfferSpeculation speculation;
+
+	@Before
+	public void before() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		allBids = new AllBidsList(profile.getDomain());
+		TopBidsCollector collector = new TopBidsCollector(allBids.size().intValue());
+		for (Bid bid : allBids) {
+			collector.offer(bid, profile.getUtility(bid).doubleValue());
+		}
+		model = new OpponentModel(codec);
+		for (int n = 0; n < 10; n++) {
+			model.update(allBids.get(BigInteger.valueOf(n)));
+		}
+		frontier = new ParetoFrontier(collector.toBidIndex(), codec, 5);
+		frontier.refresh(model);
+		speculation = new OfferSpeculation(frontier, model);
+	}
+
+	@After
+	public void after() {
+		speculation.close();
+	}
+
+	@Test
+	public void testPreparedRankUsed() {
+		speculation.start(0.8);
+		opponentOffers();
+		assertEquals(frontier.ceilingRank(0.8), speculation.take(0.8));
+		assertEquals(1, speculation.getHits());
+		// The prepared result is only used once
+		assertEquals(-1, speculation.take(0.8));
+	}
+
+	@Test
+	public void testOtherThresholdSelectsAgain() {
+		speculation.start(1.0);
+		opponentOffers();
+		int expected = frontier.ceilingRank(0.0);
+		int rank = speculation.take(0.0);
+		if (expected == frontier.ceilingRank(1.0)) {
+			// Both thresholds happen to select the same frontier bid
+			assertEquals(expected, rank);
+		} else {
+			assertEquals(-1, rank);
+			assertEquals(1, speculation.getMisses());
+		}
+	}
+
+	@Test
+	public void testFrontierRefreshedAheadOfTurn() {
+		for (int n = 0; n < 4; n++) {
+			model.update(allBids.get(BigInteger.ONE));
+		}
+		// With the next offer of the opponent, 5 offers are not in the frontier yet
+		speculation.start(0.8);
+		speculation.join();
+		assertEquals(14, frontier.getBuiltAtOfferCount());
+		opponentOffers();
+		assertEquals(frontier.ceilingRank(0.8), speculation.take(0.8));
+	}
+
+	@Test
+	public void testRebuiltFrontierInvalidates() {
+		speculation.start(0.8);
+		opponentOffers();
+		frontier.refresh(model);
+		assertEquals(-1, speculation.take(0.8));
+	}
+
+	// The opponent offers while we wait: the model may only be updated after join()
+	private void opponentOffers() {
+		speculation.join();
+		model.update(allBids.get(BigInteger.valueOf(3)));
+	}
+}
@@ -0,0 +1,102 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class OpponentModelTest {
+
+	private BidCodec codec;
+	private OpponentModel model;
+
+	@Before
+	public void before() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 4, 0, 1).toProfile();
+		codec = new BidCodec(profile.getDomain());
+		model = new OpponentModel(codec);
+	}
+
+	@Test
+	public void testEmptyModel() {
+		assertEquals(0, model.getOfferCount());
+		assertEquals(1.0 / 3, model.getIssueWeight(0), 1e-12);
+		assertEquals(BidCodec.MISSING, model.getMostFrequentValue(0));
+		assertEquals(0, model.getUtility(new int[] { 0, 1, 2 }), 0);
+	}
+
+	@Test
+	public void testFrequencies() {
+		model.update(new int[] { 0, 1, 2 });
+		model.update(new int[] { 0, 2, 3 });
+		model.update(new int[] { 0, 1, 1 });
+		assertEquals(3, model.getOfferCount());
+		assertEquals(1.0, model.getValueFrequency(0, 0), 0);
+		assertEquals(2.0 / 3, model.getValueFrequency(1, 1), 1e-12);
+		assertEquals(0.5, model.getValueUtility(1, 2), 1e-12);
+		assertEquals(1, model.getMostFrequentValue(1));
+		assertEquals(0, model.getValueUtility(2, 0), 0);
+	}
+
+	@Test
+	public void testUnchangedIssueGetsMoreWeight() {
+		model.update(new int[] { 0, 1, 2 });
+		model.update(new int[] { 0, 2, 3 });
+		model.update(new int[] { 0, 3, 1 });
+		assertTrue(model.getIssueWeight(0) > model.getIssueWeight(1));
+		assertEquals(1.0, model.getIssueWeight(0) + model.getIssueWeight(1) + model.getIssueWeight(2), 1e-12);
+	}
+
+	@Test
+	public void testUtility() {
+		for (int n = 0; n < 10; n++) {
+			model.update(new int[] { 1, 1, 1 });
+		}
+		// The bid the opponent always offers is the best bid for the opponent
+		assertEquals(1.0, model.getUtility(new int[] { 1, 1, 1 }), 1e-12);
+		assertEquals(0, model.getUtility(new int[] { 0, 0, 0 }), 0);
+	}
+
+	@Test
+	public void testMissingValueIgnored() {
+		model.update(new int[] { 1, BidCodec.MISSING, 1 });
+		assertEquals(BidCodec.MISSING, model.getMostFrequentValue(1));
+		assertEquals(1, model.getMostFrequentValue(0));
+	}
+
+	@Test
+	public void testPrior() {
+		OpponentModel previous = new OpponentModel(codec);
+		for (int n = 0; n < 20; n++) {
+			previous.update(new int[] { 1, 1, 1 });
+		}
+		OpponentStatistics statistics = new OpponentStatistics(codec);
+		statistics.add(previous);
+		model.setPrior(statistics);
+		// Before the first offer the bid of the previous opponents is the best bid for this one
+		assertEquals(1.0, model.getUtility(new int[] { 1, 1, 1 }), 1e-12);
+		assertEquals(0, model.getUtility(new int[] { 0, 0, 0 }), 0);
+
+		// The prior weighs as PRIOR_OFFERS offers, and is not counted as offers of this session
+		model.update(new int[] { 0, 0, 0 });
+		assertEquals(1.0 / OpponentModel.PRIOR_OFFERS, model.getValueUtility(0, 0), 1e-12);
+		assertEquals(1.0, model.getValueUtility(0, 1), 1e-12);
+		assertEquals(0, model.getValueCount(0, 1));
+		assertEquals(1, model.getOfferCount());
+	}
+
+	@Test
+	public void testEmptyPrior() {
+		model.setPrior(new OpponentStatistics(codec));
+		model.update(new int[] { 0, 1, 2 });
+		model.update(new int[] { 0, 1, 2 });
+		model.update(new int[] { 0, 2, 3 });
+		assertEquals(0.5, model.getValueUtility(1, 2), 1e-12);
+		assertEquals(1.0, model.getValueUtility(2, 2), 1e-12);
+	}
+}
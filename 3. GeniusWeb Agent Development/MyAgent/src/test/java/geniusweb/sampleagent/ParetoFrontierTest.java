@@ -0,0 +1,114 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class ParetoFrontierTest {
+
+	private BidCodec codec;
+	private BidIndex index;
+	private OpponentModel model;
+	private AllBidsList allBids;
+
+	@Before
+	public void before() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		codec = new BidCodec(profile.getDomain());
+		allBids = new AllBidsList(profile.getDomain());
+		TopBidsCollector collector = new TopBidsCollector(allBids.size().intValue());
+		for (Bid bid : allBids) {
+			collector.offer(bid, profile.getUtility(bid).doubleValue());
+		}
+		index = collector.toBidIndex();
+		model = new OpponentModel(codec);
+		Random random = new Random(2);
+		for (int n = 0; n < 30; n++) {
+			model.update(allBids.get(BigInteger.valueOf(random.nextInt(20))));
+		}
+	}
+
+	@Test
+	public void testFrontierIsNotDominated() {
+		ParetoFrontier frontier = new ParetoFrontier(index, codec, 1);
+		frontier.refresh(model);
+		assertTrue(frontier.size() > 0);
+		for (int k = 0; k < frontier.size(); k++) {
+			int position = frontier.getIndexPosition(k);
+			double ours = index.getUtility(position);
+			double theirs = frontier.getOpponentUtility(k);
+			for (int i = 0; i < index.size(); i++) {
+				double otherTheirs = model.getUtility(codec.encode(index.getBid(i)));
+				boolean dominates = index.getUtility(i) >= ours && otherTheirs >= theirs
+						&& (index.getUtility(i) > ours || otherTheirs > theirs);
+				assertFalse(dominates);
+			}
+		}
+	}
+
+	@Test
+	public void testFrontierSorted() {
+		ParetoFrontier frontier = new ParetoFrontier(index, codec, 1);
+		frontier.refresh(model);
+		for (int k = 1; k < frontier.size(); k++) {
+			assertTrue(index.getUtility(frontier.getIndexPosition(k - 1)) <= index
+					.getUtility(frontier.getIndexPosition(k)));
+			assertTrue(frontier.getOpponentUtility(k - 1) > frontier.getOpponentUtility(k));
+		}
+	}
+
+	@Test
+	public void testCeiling() {
+		ParetoFrontier frontier = new ParetoFrontier(index, codec, 1);
+		frontier.refresh(model);
+		for (double threshold = 0; threshold <= 1; threshold += 0.1) {
+			int position = frontier.ceilingIndexPosition(threshold);
+			if (index.getUtility(position) < threshold) {
+				// Only allowed if no frontier bid reaches the threshold: then it is our best bid
+				assertEquals(index.size() - 1, position);
+			}
+		}
+	}
+
+	@Test
+	public void testRebuiltAtFirstOffer() {
+		OpponentModel empty = new OpponentModel(codec);
+		ParetoFrontier frontier = new ParetoFrontier(index, codec, 10);
+		frontier.refresh(empty);
+		// Every bid has opponent utility 0, only the bid best for us is on the frontier
+		assertEquals(1, frontier.size());
+		assertFalse(frontier.isStale(0));
+		assertTrue(frontier.isStale(1));
+		empty.update(allBids.get(BigInteger.ONE));
+		assertTrue(frontier.refreshIfStale(empty));
+		assertEquals(1, frontier.getBuiltAtOfferCount());
+		assertTrue(frontier.size() > 1);
+		// From now on the refresh interval counts
+		empty.update(allBids.get(BigInteger.ONE));
+		assertFalse(frontier.refreshIfStale(empty));
+	}
+
+	@Test
+	public void testRefreshSchedule() {
+		ParetoFrontier frontier = new ParetoFrontier(index, codec, 5);
+		assertTrue(frontier.refreshIfStale(model));
+		assertFalse(frontier.refreshIfStale(model));
+		for (int n = 0; n < 4; n++) {
+			model.update(allBids.get(BigInteger.ONE));
+		}
+		assertFalse(frontier.refreshIfStale(model));
+		model.update(allBids.get(BigInteger.ONE));
+		assertTrue(frontier.refreshIfStale(model));
+	}
+}
@@ -0,0 +1,153 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class PersistentStateTest {
+
+	private File file;
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("persistentstate", ".bin").toFile();
+		file.delete();
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testMissingFile() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		assertNull(PersistentState.read(file, 1, new BidCodec(profile.getDomain())));
+	}
+
+	@Test
+	public void testPackedRoundTrip() throws IOException {
+		checkRoundTrip(new ProfileGenerator(3, 5, 50, 1).toProfile(), 125);
+	}
+
+	@Test
+	public void testUnpackedRoundTrip() throws IOException {
+		// 14 issues of 20 values do not fit into a long, only the first bids are indexed
+		checkRoundTrip(new ProfileGenerator(14, 20, 0, 2).toProfile(), 500);
+	}
+
+	@Test
+	public void testOtherProfileIgnored() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		long hash = PersistentState.profileHash(profile.getName(), new LinearAdditiveEvaluator(profile, codec));
+		new PersistentState(hash, codec).write(file);
+
+		LinearAdditive other = new ProfileGenerator(3, 5, 0, 2).toProfile();
+		BidCodec otherCodec = new BidCodec(other.getDomain());
+		long otherHash = PersistentState.profileHash(other.getName(), new LinearAdditiveEvaluator(other, otherCodec));
+		assertNotEquals(hash, otherHash);
+		assertNull(PersistentState.read(file, otherHash, otherCodec));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedFile() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 0, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		PersistentState state = new PersistentState(7, codec);
+		state.setBidIndex(buildIndex(profile, 125), PersistentState.COMPLETE);
+		state.write(file);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+		PersistentState.read(file, 7, codec);
+	}
+
+	@Test
+	public void testStatisticsWrittenInPlace() throws IOException {
+		LinearAdditive profile = new ProfileGenerator(3, 5, 50, 1).toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		PersistentState state = new PersistentState(7, codec);
+		state.setBidIndex(buildIndex(profile, 125), PersistentState.COMPLETE);
+		state.write(file);
+		Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+		assumeNotNull(fileKey);
+
+		PersistentState read = PersistentState.read(file, 7, codec);
+		OpponentModel model = new OpponentModel(codec);
+		model.update(new int[] { 1, 2, 3 });
+		read.getStatistics().add(model);
+		read.write(file);
+		// Replacing the file would have given it another key
+		assertEquals(fileKey, Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey());
+		PersistentState reread = PersistentState.read(file, 7, codec);
+		assertEquals(1, reread.getStatistics().getOfferCount());
+		assertEquals(1, reread.getStatistics().getValueCount(2, 3));
+		assertEquals(125, reread.getBidIndex(PersistentState.COMPLETE).size());
+
+		// A new index is written into a new file
+		reread.setBidIndex(buildIndex(profile, 100), PersistentState.COMPLETE);
+		reread.write(file);
+		assertNotEquals(fileKey, Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey());
+		assertEquals(100, PersistentState.read(file, 7, codec).getBidIndex(PersistentState.COMPLETE).size());
+	}
+
+	private void checkRoundTrip(LinearAdditive profile, int bids) throws IOException {
+		BidCodec codec = new BidCodec(profile.getDomain());
+		long hash = PersistentState.profileHash(profile.getName(), new LinearAdditiveEvaluator(profile, codec));
+		BidIndex index = buildIndex(profile, bids);
+		OpponentModel model = new OpponentModel(codec);
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		for (int n = 0; n < 20; n++) {
+			model.update(allBids.get(BigInteger.valueOf(n % 3)));
+		}
+
+		PersistentState state = new PersistentState(hash, codec);
+		state.setBidIndex(index, bids);
+		state.getStatistics().add(model);
+		state.write(file);
+		PersistentState read = PersistentState.read(file, hash, codec);
+
+		assertNull(read.getBidIndex(PersistentState.COMPLETE));
+		UtilityIndex readIndex = read.getBidIndex(bids);
+		assertEquals(index.size(), readIndex.size());
+		for (int n = 0; n < index.size(); n++) {
+			assertEquals(index.getBid(n), readIndex.getBid(n));
+			assertEquals(index.getUtility(n), readIndex.getUtility(n), 0);
+		}
+		OpponentStatistics statistics = read.getStatistics();
+		assertEquals(1, statistics.getSessionCount());
+		assertEquals(20, statistics.getOfferCount());
+		for (int i = 0; i < codec.getIssueCount(); i++) {
+			for (int v = 0; v < codec.getValueCount(i); v++) {
+				assertEquals(model.getValueCount(i, v), statistics.getValueCount(i, v));
+			}
+		}
+	}
+
+	// Index of the first bids of the bid space
+	private static BidIndex buildIndex(LinearAdditive profile, int bids) {
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		TopBidsCollector collector = new TopBidsCollector(bids);
+		for (int n = 0; n < bids; n++) {
+			Bid bid = allBids.get(BigInteger.valueOf(n));
+			collector.offer(bid, profile.getUtility(bid).doubleValue());
+		}
+		return collector.toBidIndex();
+	}
+}
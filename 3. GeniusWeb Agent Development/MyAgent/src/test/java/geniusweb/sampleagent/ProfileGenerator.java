@@ -0,0 +1,135 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+/**
+ * Generates random LinearAdditiveUtilitySpace profiles in the same JSON format
+ * as testprofile.json, for scale tests and benchmarks. A profile with n issues
+ * of v values has v^n bids, so 3 to 8 issues of 10 values give domains of
+ * 10^3 to 10^8 bids. The same arguments always give the same profile.
+ * <p>
+ * Can also be run from the command line:
+ * {@code ProfileGenerator <file> <issues> <valuesPerIssue> <numberIssuePercent> <seed>}
+ */
+public class ProfileGenerator {
+
+	private final static ObjectMapper jackson = new ObjectMapper();
+
+	private final int issues;
+	private final int valuesPerIssue;
+	private final int numberIssuePercent;
+	private final long seed;
+
+	/**
+	 * @param issues             number of issues, at least 1
+	 * @param valuesPerIssue     number of values of each issue, at least 2
+	 * @param numberIssuePercent percentage (0-100) of the issues that are number
+	 *                           issues with numberutils, the others are discrete
+	 *                           issues with discreteutils
+	 * @param seed               seed of the random utilities and issue kinds
+	 */
+	public ProfileGenerator(int issues, int valuesPerIssue, int numberIssuePercent, long seed) {
+		if (issues < 1 || valuesPerIssue < 2 || numberIssuePercent < 0 || numberIssuePercent > 100) {
+			throw new IllegalArgumentException("Invalid profile: " + issues + " issues of " + valuesPerIssue
+					+ " values, " + numberIssuePercent + "% number issues");
+		}
+		this.issues = issues;
+		this.valuesPerIssue = valuesPerIssue;
+		this.numberIssuePercent = numberIssuePercent;
+		this.seed = seed;
+	}
+
+	public BigInteger getBidSpaceSize() {
+		return BigInteger.valueOf(valuesPerIssue).pow(issues);
+	}
+
+	public String toJson() {
+		Random random = new Random(seed);
+		StringBuilder utilities = new StringBuilder();
+		StringBuilder weights = new StringBuilder();
+		StringBuilder domain = new StringBuilder();
+		// Weights must sum up to exactly 1, the last issue gets the remainder
+		BigDecimal weight = BigDecimal.ONE.divide(BigDecimal.valueOf(issues), 4, RoundingMode.DOWN);
+		BigDecimal lastWeight = BigDecimal.ONE.subtract(weight.multiply(BigDecimal.valueOf(issues - 1)));
+		for (int i = 0; i < issues; i++) {
+			String separator = i == 0 ? "" : ",";
+			utilities.append(separator).append("\"issue").append(i).append("\":");
+			domain.append(separator).append("\"issue").append(i).append("\":");
+			if (random.nextInt(100) < numberIssuePercent) {
+				int low = random.nextInt(100);
+				int high = low + valuesPerIssue - 1;
+				utilities.append("{\"numberutils\":{\"lowValue\":").append(low).append(",\"lowUtility\":")
+						.append(random.nextInt(101) / 100.0).append(",\"highValue\":").append(high)
+						.append(",\"highUtility\":").append(random.nextInt(101) / 100.0).append("}}");
+				domain.append("{\"range\":[\"").append(low).append("\",\"").append(high).append("\",\"1\"]}");
+			} else {
+				utilities.append("{\"discreteutils\":{\"valueUtilities\":{");
+				domain.append("{\"values\":[");
+				for (int v = 0; v < valuesPerIssue; v++) {
+					String valueSeparator = v == 0 ? "" : ",";
+					utilities.append(valueSeparator).append("\"value").append(v).append("\":")
+							.append(random.nextInt(101) / 100.0);
+					domain.append(valueSeparator).append("\"value").append(v).append("\"");
+				}
+				utilities.append("}}}");
+				domain.append("]}");
+			}
+			weights.append(separator).append("\"issue").append(i).append("\":")
+					.append(i == issues - 1 ? lastWeight : weight);
+		}
+		String name = "generated" + issues + "x" + valuesPerIssue + "s" + seed;
+		return "{\"LinearAdditiveUtilitySpace\":{\"issueUtilities\":{" + utilities + "},\"issueWeights\":{" + weights
+				+ "},\"domain\":{\"name\":\"" + name + "\",\"issuesValues\":{" + domain + "}},\"name\":\"" + name
+				+ "profile\"}}";
+	}
+
+	public LinearAdditive toProfile() throws IOException {
+		return (LinearAdditive) jackson.readValue(toJson(), Profile.class);
+	}
+
+	/**
+	 * Writes the profile to a file.
+	 * 
+	 * @return file: URI of the profile, as used in ProfileRef
+	 */
+	public URI write(Path file) throws IOException {
+		Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+		return file.toUri();
+	}
+
+	/**
+	 * Writes the profile to a temporary file that is deleted when the JVM exits.
+	 * 
+	 * @return file: URI of the profile, as used in ProfileRef
+	 */
+	public URI writeTemporary() throws IOException {
+		Path file = Files.createTempFile("generatedprofile", ".json");
+		file.toFile().deleteOnExit();
+		return write(file);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 5) {
+			System.err.println("Usage: ProfileGenerator <file> <issues> <valuesPerIssue> <numberIssuePercent> <seed>");
+			System.exit(1);
+		}
+		ProfileGenerator generator = new ProfileGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+				Integer.parseInt(args[3]), Long.parseLong(args[4]));
+		URI uri = generator.write(Paths.get(args[0]));
+		System.out.println("Wrote profile with " + generator.getBidSpaceSize() + " bids to " + uri);
+	}
+}
@@ -0,0 +1,78 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.Date;
+
+import org.junit.Test;
+
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressTime;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+
+public class ProfileGeneratorTest {
+
+	@Test
+	public void testBidSpaceSizes() throws IOException {
+		for (int issues = 3; issues <= 8; issues++) {
+			ProfileGenerator generator = new ProfileGenerator(issues, 10, 50, issues);
+			LinearAdditive profile = generator.toProfile();
+			assertEquals(BigInteger.TEN.pow(issues), generator.getBidSpaceSize());
+			assertEquals(generator.getBidSpaceSize(), new AllBidsList(profile.getDomain()).size());
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		assertEquals(new ProfileGenerator(4, 5, 50, 1).toJson(), new ProfileGenerator(4, 5, 50, 1).toJson());
+		assertNotEquals(new ProfileGenerator(4, 5, 50, 1).toJson(), new ProfileGenerator(4, 5, 50, 2).toJson());
+	}
+
+	@Test
+	public void testIssueMix() throws IOException {
+		assertFalse(new ProfileGenerator(5, 3, 0, 1).toJson().contains("numberutils"));
+		assertFalse(new ProfileGenerator(5, 3, 100, 1).toJson().contains("discreteutils"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidValues() {
+		new ProfileGenerator(3, 1, 0, 1);
+	}
+
+	@Test
+	public void testAgentOnGeneratedProfile() throws IOException {
+		// 10^4 bids, precomputed in init()
+		assertAgentOffers(new ProfileGenerator(4, 10, 50, 1).writeTemporary(), new Parameters());
+	}
+
+	@Test
+	public void testAgentOnGeneratedProfileStreaming() throws IOException {
+		// 10^5 bids, above the threshold so that they are streamed
+		assertAgentOffers(new ProfileGenerator(5, 10, 50, 1).writeTemporary(),
+				new Parameters().with(MyAgent.STREAMING_THRESHOLD_PARAMETER, 10000));
+	}
+
+	private static void assertAgentOffers(URI profile, Parameters parameters) {
+		MyAgent party = new MyAgent();
+		TestConnection connection = new TestConnection();
+		party.connect(connection);
+		party.notifyChange(new Settings(new PartyId("party1"), new ProfileRef(profile), new ProtocolRef("SAOP"),
+				new ProgressTime(60000L, new Date()), parameters));
+		party.notifyChange(new YourTurn());
+		assertEquals(1, connection.getActions().size());
+		assertTrue(connection.getActions().get(0) instanceof Offer);
+	}
+}
@@ -0,0 +1,97 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import geniusweb.actions.Accept;
+import geniusweb.actions.Action;
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Inform;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.issuevalue.Bid;
+import geniusweb.party.Capabilities;
+import geniusweb.party.DefaultParty;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.UtilitySpace;
+import geniusweb.profileconnection.ProfileConnectionFactory;
+import geniusweb.profileconnection.ProfileInterface;
+import tudelft.utilities.logging.Reporter;
+
+/**
+ * Baseline SAOP party of the GeniusWeb Deployment I tutorial: accepts a bid
+ * having utility value &gt; 0.7 and otherwise offers a random bid, trying at
+ * most 100 random bids to find one having utility value &gt; 0.7. Unlike the
+ * tutorial agent it draws complete bids only and takes a seed, so that
+ * tournaments against it are reproducible.
+ */
+public class RandomBidParty extends DefaultParty {
+
+	private static final double ACCEPTABLE_VALUE = 0.7;
+	private static final int ATTEMPTS = 100;
+
+	private final Random random;
+	private PartyId me;
+	private UtilitySpace profile;
+	private AllBidsList bidspace;
+	private Bid lastReceivedBid = null;
+
+	public RandomBidParty(Reporter reporter, long seed) {
+		super(reporter);
+		this.random = new Random(seed);
+	}
+
+	@Override
+	public void notifyChange(Inform info) {
+		try {
+			if (info instanceof Settings) {
+				Settings settings = (Settings) info;
+				me = settings.getID();
+				try (ProfileInterface profileint = ProfileConnectionFactory.create(settings.getProfile().getURI(),
+						getReporter())) {
+					profile = (UtilitySpace) profileint.getProfile();
+				}
+				bidspace = new AllBidsList(profile.getDomain());
+			} else if (info instanceof ActionDone) {
+				Action action = ((ActionDone) info).getAction();
+				if (action instanceof Offer && !action.getActor().equals(me)) {
+					lastReceivedBid = ((Offer) action).getBid();
+				}
+			} else if (info instanceof YourTurn) {
+				getConnection().send(isAcceptable(lastReceivedBid) ? new Accept(me, lastReceivedBid) : makeAnOffer());
+			}
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to handle info", e);
+		}
+	}
+
+	@Override
+	public Capabilities getCapabilities() {
+		return new Capabilities(new HashSet<>(Arrays.asList("SAOP")), Collections.singleton(Profile.class));
+	}
+
+	@Override
+	public String getDescription() {
+		return "Accepts the bids having utility value > " + ACCEPTABLE_VALUE + ". Offers random bids having utility value > "
+				+ ACCEPTABLE_VALUE + ".";
+	}
+
+	private boolean isAcceptable(Bid bid) {
+		return bid != null && profile.getUtility(bid).doubleValue() > ACCEPTABLE_VALUE;
+	}
+
+	private Offer makeAnOffer() throws IOException {
+		Bid bid = null;
+		for (int attempt = 0; attempt < ATTEMPTS && !isAcceptable(bid); attempt++) {
+			bid = bidspace.get(BigInteger.valueOf(random.nextInt(bidspace.size().intValue())));
+		}
+		return new Offer(me, bid);
+	}
+}
@@ -0,0 +1,281 @@
+package geniusweb.sampleagent;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.websocket.DeploymentException;
+
+import geniusweb.actions.Action;
+import geniusweb.actions.PartyId;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.profileconnection.ProfileConnectionFactory;
+import geniusweb.profileconnection.ProfileInterface;
+import geniusweb.progress.Progress;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+import tudelft.utilities.logging.Reporter;
+
+/**
+ * Regression harness for the turns of MyAgent. Replays a session recorded by
+ * a {@link SessionRecorder} into a new MyAgent, seeded with the recorded seed
+ * and driven by a virtual clock: at each recorded turn the {@link Progress} of
+ * the agent returns the recorded time, whatever the wall clock says. Every
+ * action the agent sends is compared with the action recorded for that turn,
+ * and the recorded action is informed to the agent, so a mismatch does not
+ * change the rest of the replay. The time each turn takes is measured.
+ * <p>
+ * The mutation search of the agent is cut by a time budget, which depends on
+ * the machine. The recorded cuts are given to the replayed agent with
+ * {@link MyAgent#limitNextMutation(int)}: its searches stop after the recorded
+ * number of combinations, and never on time, so the offers are repeated on any
+ * machine. The actions are only repeated if the agent did not run out of time
+ * for the whole turn while recording: the replayed agent never does.
+ */
+public class ReplayHarness {
+
+	private static final PartyId US = new PartyId("replay");
+	private static final PartyId OPPONENT = new PartyId("opponent");
+
+	private final URI profile;
+	private final Parameters parameters;
+	private final Reporter reporter;
+
+	/**
+	 * @param profile    the profile the session was recorded with
+	 * @param parameters parameters of the replayed agent. The seed is replaced
+	 *                   by the recorded one, if any. Should not contain
+	 *                   negotiationdata or persistentstate, the replay would
+	 *                   overwrite those files.
+	 * @param reporter   used by the agent and to read the profile
+	 */
+	public ReplayHarness(URI profile, Parameters parameters, Reporter reporter) {
+		this.profile = profile;
+		this.parameters = parameters;
+		this.reporter = reporter;
+	}
+
+	/**
+	 * Replays the recorded session.
+	 *
+	 * @throws IllegalArgumentException if the session was recorded with another
+	 *                                  profile
+	 * @throws IOException              if the file can not be read
+	 */
+	public Result replay(File trace) throws IOException, DeploymentException {
+		LinearAdditive space = readProfile();
+		BidCodec codec = new BidCodec(space.getDomain());
+		long profileHash = PersistentState.profileHash(space.getName(), new LinearAdditiveEvaluator(space, codec));
+		SessionReplay decoder = new SessionReplay(codec, US, OPPONENT);
+		VirtualProgress progress = new VirtualProgress();
+		LocalConnection connection = new LocalConnection();
+		Result result = new Result();
+		MyAgent agent = null;
+		List<Action> sent = Collections.emptyList();
+
+		List<Integer> mutationLimits = readMutationLimits(trace, profileHash, codec);
+		try (NegotiationData.Reader reader = NegotiationData.Reader.open(trace, profileHash, codec)) {
+			Parameters agentParameters = parameters;
+			while (reader.next()) {
+				if (reader.getType() == NegotiationData.SEED) {
+					agentParameters = parameters.with(MyAgent.SEED_PARAMETER, reader.getSeed());
+					continue;
+				}
+				if (agent == null) {
+					agent = new MyAgent(reporter);
+					agent.connect(connection);
+					agent.notifyChange(new Settings(US, new ProfileRef(profile), new ProtocolRef("SAOP"), progress,
+							agentParameters));
+				}
+				switch (reader.getType()) {
+				case NegotiationData.CUT:
+					// Given to the agent before the turn
+					result.cutCount++;
+					break;
+				case NegotiationData.TURN:
+					result.unmatched(sent);
+					progress.time = reader.getTime();
+					agent.limitNextMutation(mutationLimits.get(result.getTurnCount()));
+					long start = System.nanoTime();
+					agent.notifyChange(new YourTurn());
+					result.record(System.nanoTime() - start);
+					sent = connection.takeActions();
+					break;
+				case NegotiationData.FINISHED:
+					result.unmatched(sent);
+					sent = Collections.emptyList();
+					agent.notifyChange(decoder.toFinished(reader));
+					break;
+				default:
+					Action recorded = decoder.toAction(reader);
+					if (reader.getParty() == NegotiationData.US) {
+						result.compare(recorded, sent);
+						sent = Collections.emptyList();
+					}
+					agent.notifyChange(new ActionDone(recorded));
+				}
+			}
+			result.unmatched(sent);
+		} finally {
+			if (agent != null) {
+				result.metrics = agent.getMetrics();
+				agent.terminate();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return for each recorded turn, the number of combinations after which
+	 *         its mutation search was cut, Integer.MAX_VALUE if it was not cut
+	 */
+	private List<Integer> readMutationLimits(File trace, long profileHash, BidCodec codec) throws IOException {
+		List<Integer> limits = new ArrayList<>();
+		try (NegotiationData.Reader reader = NegotiationData.Reader.open(trace, profileHash, codec)) {
+			if (reader == null) {
+				throw new IllegalArgumentException(trace + " was recorded with another profile than " + profile);
+			}
+			while (reader.next()) {
+				if (reader.getType() == NegotiationData.TURN) {
+					limits.add(Integer.MAX_VALUE);
+				} else if (reader.getType() == NegotiationData.CUT && !limits.isEmpty()) {
+					limits.set(limits.size() - 1, reader.getCombinations());
+				}
+			}
+		}
+		return limits;
+	}
+
+	private LinearAdditive readProfile() throws IOException, DeploymentException {
+		try (ProfileInterface profileint = ProfileConnectionFactory.create(profile, reporter)) {
+			Profile read = profileint.getProfile();
+			if (!(read instanceof LinearAdditive)) {
+				throw new IllegalArgumentException("Only LinearAdditive profiles are recorded, not " + profile);
+			}
+			return (LinearAdditive) read;
+		}
+	}
+
+	/**
+	 * Progress of the replayed agent: the time of the recorded turn, without a
+	 * deadline, so the agent never falls back on its cached bid.
+	 */
+	private static class VirtualProgress implements Progress {
+		private double time = 0;
+
+		@Override
+		public Double get(Long currentTimeMs) {
+			return time;
+		}
+
+		@Override
+		public boolean isPastDeadline(Long currentTimeMs) {
+			return false;
+		}
+
+		@Override
+		public Date getTerminationTime() {
+			return null;
+		}
+	}
+
+	/**
+	 * Outcome of a replay: the actions that differ from the recorded ones and
+	 * the time taken by each turn.
+	 */
+	public static class Result {
+		private final List<String> mismatches = new ArrayList<>();
+		private final List<Long> turnNanos = new ArrayList<>();
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		private TurnMetrics metrics;
+		private int cutCount = 0;
+
+		/**
+		 * @return true if the agent sent exactly the recorded action in every
+		 *         turn
+		 */
+		public boolean isIdentical() {
+			return mismatches.isEmpty();
+		}
+
+		/**
+		 * @return a description of each turn in which the agent did not send
+		 *         exactly the recorded action, in the order of the turns
+		 */
+		public List<String> getMismatches() {
+			return Collections.unmodifiableList(mismatches);
+		}
+
+		public int getTurnCount() {
+			return turnNanos.size();
+		}
+
+		/**
+		 * @return number of turns whose mutation search was cut by its time
+		 *         budget while recording
+		 */
+		public int getCutCount() {
+			return cutCount;
+		}
+
+		/**
+		 * @return the time taken by the agent to handle each YourTurn, in
+		 *         nanoseconds
+		 */
+		public long[] getTurnNanos() {
+			long[] nanos = new long[turnNanos.size()];
+			for (int n = 0; n < nanos.length; n++) {
+				nanos[n] = turnNanos.get(n);
+			}
+			return nanos;
+		}
+
+		/**
+		 * @return the distribution of the times of {@link #getTurnNanos()}
+		 */
+		public LatencyHistogram getHistogram() {
+			return histogram;
+		}
+
+		/**
+		 * @return the time the agent spent in each phase of its turns, null if
+		 *         the trace had no events
+		 */
+		public TurnMetrics getMetrics() {
+			return metrics;
+		}
+
+		private void record(long nanos) {
+			turnNanos.add(nanos);
+			histogram.record(nanos);
+		}
+
+		private void compare(Action recorded, List<Action> sent) {
+			if (sent.size() != 1 || !recorded.equals(sent.get(0))) {
+				mismatches.add("turn " + getTurnCount() + ": recorded " + recorded + " but sent " + sent);
+			}
+		}
+
+		private void unmatched(List<Action> sent) {
+			if (!sent.isEmpty()) {
+				mismatches.add("turn " + getTurnCount() + ": nothing recorded but sent " + sent);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getTurnCount() + " turns, " + mismatches.size() + " mismatches, turn time p50 "
+					+ histogram.getPercentile(50) + " ns, p99 " + histogram.getPercentile(99) + " ns, max "
+					+ histogram.getMax() + " ns";
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import javax.websocket.DeploymentException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.actions.FileLocation;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.references.Parameters;
+import tudelft.utilities.logging.Reporter;
+
+public class ReplayHarnessTest {
+
+	private static final int DEADLINE_ROUNDS = 30;
+
+	private final Reporter reporter = mock(Reporter.class);
+	private final Parameters replayParameters = new Parameters().with(MyAgent.MUTATION_BUDGET_PARAMETER, 1000000);
+	private URI profile1;
+	private URI profile2;
+	private File trace;
+
+	@Before
+	public void before() throws IOException {
+		profile1 = new ProfileGenerator(4, 5, 0, 1).writeTemporary();
+		profile2 = new ProfileGenerator(4, 5, 0, 2).writeTemporary();
+	}
+
+	@After
+	public void after() {
+		if (trace != null) {
+			trace.delete();
+		}
+	}
+
+	@Test
+	public void testRecordedSessionReplaysIdentically() throws IOException, DeploymentException {
+		// Unseeded: the agent records the seed it draws
+		UUID data = UUID.randomUUID();
+		trace = new FileLocation(data).getFile();
+		NegotiationSession session = new NegotiationSession(0,
+				new NegotiationSession.Participant("myagent", () -> new MyAgent(reporter), profile1,
+						replayParameters.with(MyAgent.NEGOTIATION_DATA_PARAMETER, data.toString())),
+				new NegotiationSession.Participant("random", () -> new RandomBidParty(reporter, 1), profile2,
+						new Parameters()),
+				DEADLINE_ROUNDS, reporter);
+		NegotiationSession.Result recorded = session.call();
+		assertNull(recorded.getError());
+
+		ReplayHarness.Result result = new ReplayHarness(profile1, replayParameters, reporter).replay(trace);
+		assertTrue(result.getMismatches().toString(), result.isIdentical());
+		assertTrue(result.getTurnCount() >= 1 && result.getTurnCount() <= DEADLINE_ROUNDS);
+		assertEquals(result.getTurnCount(), result.getTurnNanos().length);
+		assertEquals(result.getTurnCount(), result.getHistogram().getCount());
+		assertTrue(result.getHistogram().getMax() > 0);
+	}
+
+	@Test
+	public void testTimeCutsReplayIdentically() throws IOException, DeploymentException {
+		// Without a budget every mutation search is cut by time while recording
+		UUID data = UUID.randomUUID();
+		trace = new FileLocation(data).getFile();
+		NegotiationSession session = new NegotiationSession(0,
+				new NegotiationSession.Participant("myagent", () -> new MyAgent(reporter), profile1,
+						new Parameters().with(MyAgent.MUTATION_BUDGET_PARAMETER, 0)
+								.with(MyAgent.NEGOTIATION_DATA_PARAMETER, data.toString())),
+				new NegotiationSession.Participant("random", () -> new RandomBidParty(reporter, 1), profile2,
+						new Parameters()),
+				DEADLINE_ROUNDS, reporter);
+		assertNull(session.call().getError());
+
+		// Replayed with the default budget, the recorded cuts are repeated
+		ReplayHarness.Result result = new ReplayHarness(profile1, new Parameters(), reporter).replay(trace);
+		assertTrue(result.getMismatches().toString(), result.isIdentical());
+		assertTrue(result.getCutCount() >= 1);
+	}
+
+	@Test
+	public void testMismatchReported() throws IOException, DeploymentException {
+		ProfileGenerator generator = new ProfileGenerator(4, 5, 0, 1);
+		LinearAdditive profile = generator.toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		long profileHash = PersistentState.profileHash(profile.getName(), new LinearAdditiveEvaluator(profile, codec));
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		trace = Files.createTempFile("trace", ".bin").toFile();
+		try (SessionRecorder recorder = new SessionRecorder(trace, profileHash, codec,
+				SessionRecorder.DEFAULT_BUFFER_SIZE)) {
+			recorder.seed(3);
+			recorder.offer(NegotiationData.OPPONENT, allBids.get(BigInteger.ZERO));
+			recorder.turn(0.1);
+			// MyAgent never ends the negotiation
+			recorder.end(NegotiationData.US);
+			recorder.finished(null);
+		}
+
+		ReplayHarness.Result result = new ReplayHarness(profile1, replayParameters, reporter).replay(trace);
+		assertFalse(result.isIdentical());
+		assertEquals(1, result.getMismatches().size());
+		assertTrue(result.getMismatches().get(0).startsWith("turn 1: recorded "));
+		assertTrue(result.getMismatches().get(0).contains("EndNegotiation"));
+		assertEquals(1, result.getTurnCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherProfile() throws IOException, DeploymentException {
+		ProfileGenerator generator = new ProfileGenerator(4, 5, 0, 1);
+		LinearAdditive profile = generator.toProfile();
+		BidCodec codec = new BidCodec(profile.getDomain());
+		trace = Files.createTempFile("trace", ".bin").toFile();
+		new SessionRecorder(trace, 1234, codec, SessionRecorder.DEFAULT_BUFFER_SIZE).close();
+		new ReplayHarness(profile1, replayParameters, reporter).replay(trace);
+	}
+}
@@ -0,0 +1,115 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class SessionRecorderTest {
+
+	private static final long PROFILE_HASH = 42;
+
+	private File file;
+	private BidCodec codec;
+	private AllBidsList allBids;
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("session", ".bin").toFile();
+		LinearAdditive profile = new ProfileGenerator(3, 4, 0, 5).toProfile();
+		codec = new BidCodec(profile.getDomain());
+		allBids = new AllBidsList(profile.getDomain());
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testEventsReadBackInOrder() throws IOException {
+		// The buffer holds only a few events, most of them are written while recording goes on
+		try (SessionRecorder recorder = new SessionRecorder(file, PROFILE_HASH, codec, 32)) {
+			recorder.seed(-42);
+			for (int n = 0; n < 500; n++) {
+				recorder.offer(NegotiationData.OPPONENT, bid(n));
+				recorder.turn(n / 500.0);
+				if (n % 2 == 1) {
+					recorder.cut(64 * n);
+				}
+				recorder.offer(NegotiationData.US, bid(n + 1));
+			}
+			recorder.accept(NegotiationData.OPPONENT, bid(500));
+			recorder.end(NegotiationData.US);
+			recorder.finished(bid(500));
+		}
+
+		try (NegotiationData.Reader reader = NegotiationData.Reader.open(file, PROFILE_HASH, codec)) {
+			assertTrue(reader.next());
+			assertEquals(NegotiationData.SEED, reader.getType());
+			assertEquals(-42, reader.getSeed());
+			for (int n = 0; n < 500; n++) {
+				assertTrue(reader.next());
+				assertEquals(NegotiationData.OFFER, reader.getType());
+				assertEquals(NegotiationData.OPPONENT, reader.getParty());
+				assertArrayEquals(codec.encode(bid(n)), reader.getCodes());
+				assertTrue(reader.next());
+				assertEquals(NegotiationData.TURN, reader.getType());
+				assertEquals(n / 500.0, reader.getTime(), 0);
+				if (n % 2 == 1) {
+					assertTrue(reader.next());
+					assertEquals(NegotiationData.CUT, reader.getType());
+					assertEquals(64 * n, reader.getCombinations());
+				}
+				assertTrue(reader.next());
+				assertEquals(NegotiationData.US, reader.getParty());
+				assertArrayEquals(codec.encode(bid(n + 1)), reader.getCodes());
+			}
+			assertTrue(reader.next());
+			assertEquals(NegotiationData.ACCEPT, reader.getType());
+			assertTrue(reader.next());
+			assertEquals(NegotiationData.END, reader.getType());
+			assertEquals(NegotiationData.US, reader.getParty());
+			assertTrue(reader.next());
+			assertEquals(NegotiationData.FINISHED, reader.getType());
+			assertTrue(reader.hasAgreement());
+			assertArrayEquals(codec.encode(bid(500)), reader.getCodes());
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testOtherProfileNotRead() throws IOException {
+		new SessionRecorder(file, PROFILE_HASH, codec, SessionRecorder.DEFAULT_BUFFER_SIZE).close();
+		assertEquals(null, NegotiationData.Reader.open(file, PROFILE_HASH + 1, codec));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBufferTooSmall() throws IOException {
+		new SessionRecorder(file, PROFILE_HASH, codec, 8);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRecordAfterClose() throws IOException {
+		SessionRecorder recorder = new SessionRecorder(file, PROFILE_HASH, codec, SessionRecorder.DEFAULT_BUFFER_SIZE);
+		recorder.close();
+		recorder.turn(0.5);
+	}
+
+	private Bid bid(int n) {
+		return allBids.get(BigInteger.valueOf(n % allBids.size().intValue()));
+	}
+}
@@ -0,0 +1,131 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.actions.Offer;
+import geniusweb.actions.PartyId;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Finished;
+import geniusweb.inform.Inform;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.party.Capabilities;
+import geniusweb.party.Party;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.progress.ProgressRounds;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+
+public class SessionReplayTest {
+
+	private static final PartyId US = new PartyId("us");
+	private static final PartyId OPPONENT = new PartyId("opponent");
+	private static final int TURNS = 5;
+
+	private File file;
+	private URI profileUri;
+	private LinearAdditive profile;
+	private BidCodec codec;
+	private long profileHash;
+	private AllBidsList allBids;
+
+	@Before
+	public void before() throws IOException {
+		file = Files.createTempFile("session", ".bin").toFile();
+		ProfileGenerator generator = new ProfileGenerator(3, 5, 0, 8);
+		profileUri = generator.writeTemporary();
+		profile = generator.toProfile();
+		codec = new BidCodec(profile.getDomain());
+		profileHash = PersistentState.profileHash(profile.getName(), new LinearAdditiveEvaluator(profile, codec));
+		allBids = new AllBidsList(profile.getDomain());
+
+		try (SessionRecorder recorder = new SessionRecorder(file, profileHash, codec,
+				SessionRecorder.DEFAULT_BUFFER_SIZE)) {
+			for (int n = 0; n < TURNS; n++) {
+				recorder.offer(NegotiationData.OPPONENT, allBids.get(BigInteger.valueOf(n)));
+				recorder.turn(n / (double) TURNS);
+				recorder.offer(NegotiationData.US, allBids.get(BigInteger.valueOf(100 + n)));
+			}
+			recorder.finished(null);
+		}
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testInformsInOrder() throws IOException {
+		InformCollector party = new InformCollector();
+		assertEquals(3 * TURNS + 1, new SessionReplay(codec, US, OPPONENT).replay(file, profileHash, party));
+		List<Inform> informs = party.informs;
+		assertEquals(3 * TURNS + 1, informs.size());
+		Offer first = (Offer) ((ActionDone) informs.get(0)).getAction();
+		assertEquals(OPPONENT, first.getActor());
+		assertEquals(allBids.get(BigInteger.ZERO), first.getBid());
+		assertTrue(informs.get(1) instanceof YourTurn);
+		assertEquals(US, ((ActionDone) informs.get(2)).getAction().getActor());
+		assertTrue(informs.get(3 * TURNS) instanceof Finished);
+	}
+
+	@Test
+	public void testReplayIsDeterministic() throws IOException {
+		// With the same seed the agent answers the replayed session the same way each time
+		assertEquals(replayIntoMyAgent(), replayIntoMyAgent());
+	}
+
+	@Test
+	public void testOtherProfile() throws IOException {
+		assertEquals(-1, new SessionReplay(codec, US, OPPONENT).replay(file, profileHash + 1,
+				new InformCollector()));
+	}
+
+	private List<?> replayIntoMyAgent() throws IOException {
+		MyAgent agent = new MyAgent();
+		TestConnection connection = new TestConnection();
+		agent.connect(connection);
+		agent.notifyChange(new Settings(US, new ProfileRef(profileUri), new ProtocolRef("SAOP"),
+				new ProgressRounds(TURNS, 0, new Date(System.currentTimeMillis() + 3600000L)),
+				new Parameters().with(MyAgent.SEED_PARAMETER, 3).with(MyAgent.MUTATION_BUDGET_PARAMETER, 1000000)));
+		new SessionReplay(codec, US, OPPONENT).replay(file, profileHash, agent);
+		agent.terminate();
+		assertEquals(TURNS, connection.getActions().size());
+		return connection.getActions();
+	}
+
+	private static class InformCollector implements Party {
+		private final List<Inform> informs = new ArrayList<>();
+
+		@Override
+		public void notifyChange(Inform info) {
+			informs.add(info);
+		}
+
+		@Override
+		public Capabilities getCapabilities() {
+			return null;
+		}
+
+		@Override
+		public String getDescription() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.Profile;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class TimeDependentBiddingTest {
+
+	private static final String PROFILE = "src/test/resources/testprofile.json";
+	private final static ObjectMapper jackson = new ObjectMapper();
+
+	private BidIndex index;
+	private BiddingStrategy bidding;
+
+	@Before
+	public void before() throws IOException {
+		String serialized = new String(Files.readAllBytes(Paths.get(PROFILE)), StandardCharsets.UTF_8);
+		LinearAdditive profile = (LinearAdditive) jackson.readValue(serialized, Profile.class);
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		int size = allBids.size().intValue();
+		Bid[] bids = new Bid[size];
+		double[] utilities = new double[size];
+		int i = 0;
+		for (Bid bid : allBids) {
+			bids[i] = bid;
+			utilities[i++] = profile.getUtility(bid).doubleValue();
+		}
+		index = BidIndex.sort(bids, utilities);
+		bidding = new TimeDependentBidding(index);
+	}
+
+	@Test
+	public void testLowestAcceptableBid() {
+		for (int i = 0; i < index.size(); i++) {
+			double threshold = index.getUtility(i);
+			assertEquals(index.getBid(index.ceilingIndex(threshold)), bidding.chooseBid(threshold));
+		}
+	}
+
+	@Test
+	public void testBestBidIfNoneAcceptable() {
+		assertEquals(index.getMaxUtilityBid(), bidding.chooseBid(index.getMaxUtility() + 0.01));
+	}
+}
@@ -0,0 +1,67 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+import geniusweb.issuevalue.Bid;
+import geniusweb.issuevalue.DiscreteValue;
+
+public class TopBidsCollectorTest {
+
+	private static Bid bid(int n) {
+		return new Bid(Collections.singletonMap("issue", new DiscreteValue("value" + n)));
+	}
+
+	@Test
+	public void testKeepsBestBids() {
+		Random random = new Random(42);
+		double[] all = new double[1000];
+		TopBidsCollector collector = new TopBidsCollector(10);
+		for (int i = 0; i < all.length; i++) {
+			all[i] = random.nextDouble();
+			collector.offer(bid(i), all[i]);
+		}
+		assertEquals(1000, collector.getSeen());
+		assertEquals(10, collector.size());
+
+		Arrays.sort(all);
+		BidIndex index = collector.toBidIndex();
+		assertEquals(10, index.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(all[all.length - 10 + i], index.getUtility(i), 0);
+		}
+	}
+
+	@Test
+	public void testFewerBidsThanCapacity() {
+		TopBidsCollector collector = new TopBidsCollector(10);
+		collector.offer(bid(1), 0.5);
+		collector.offer(bid(2), 0.1);
+		collector.offer(bid(3), 0.9);
+		BidIndex index = collector.toBidIndex();
+		assertEquals(3, index.size());
+		assertEquals(bid(2), index.getBid(0));
+		assertEquals(bid(3), index.getMaxUtilityBid());
+	}
+
+	@Test
+	public void testMinUtility() {
+		TopBidsCollector collector = new TopBidsCollector(2);
+		assertTrue(Double.isInfinite(collector.getMinUtility()));
+		collector.offer(bid(1), 0.5);
+		collector.offer(bid(2), 0.7);
+		collector.offer(bid(3), 0.6);
+		assertEquals(0.6, collector.getMinUtility(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new TopBidsCollector(0);
+	}
+}
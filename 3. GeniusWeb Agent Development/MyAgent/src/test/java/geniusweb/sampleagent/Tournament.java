@@ -0,0 +1,140 @@
+package geniusweb.sampleagent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many {@link NegotiationSession}s in parallel on a fixed number of
+ * threads, one session per thread at a time, and summarizes their results.
+ * Used to tune MyAgent against itself and against baseline parties such as
+ * {@link RandomBidParty} without a runserver.
+ */
+public class Tournament {
+
+	private final int threads;
+
+	/**
+	 * @param threads number of sessions run at the same time, for example
+	 *                Runtime.getRuntime().availableProcessors()
+	 */
+	public Tournament(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Number of threads must be positive but is " + threads);
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Runs the sessions and waits until all of them are finished.
+	 *
+	 * @throws ExecutionException if a session could not be set up, for example
+	 *                            because a profile can not be read
+	 */
+	public Summary run(List<NegotiationSession> sessions) throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Tournament");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			long start = System.nanoTime();
+			List<Future<NegotiationSession.Result>> futures = executor.invokeAll(sessions);
+			List<NegotiationSession.Result> results = new ArrayList<>(futures.size());
+			for (Future<NegotiationSession.Result> future : futures) {
+				results.add(future.get());
+			}
+			return new Summary(results, System.nanoTime() - start);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Results of the sessions of a tournament, in the order the sessions were
+	 * given, and their aggregates.
+	 */
+	public static class Summary {
+		private final List<NegotiationSession.Result> results;
+		private final long elapsedNanos;
+
+		Summary(List<NegotiationSession.Result> results, long elapsedNanos) {
+			this.results = Collections.unmodifiableList(results);
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public List<NegotiationSession.Result> getResults() {
+			return results;
+		}
+
+		public int getAgreementCount() {
+			int count = 0;
+			for (NegotiationSession.Result result : results) {
+				if (result.hasAgreement()) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		public int getErrorCount() {
+			int count = 0;
+			for (NegotiationSession.Result result : results) {
+				if (result.getError() != null) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * @param party 0 for the first party of the sessions, 1 for the second one
+		 * @return mean utility of the party over all sessions, counting 0 for the
+		 *         sessions without agreement
+		 */
+		public double getMeanUtility(int party) {
+			double sum = 0;
+			for (NegotiationSession.Result result : results) {
+				sum += result.getUtility(party);
+			}
+			return results.isEmpty() ? Double.NaN : sum / results.size();
+		}
+
+		/**
+		 * @return mean number of rounds of the sessions that reached an agreement,
+		 *         NaN if none did
+		 */
+		public double getMeanRoundsToAgreement() {
+			long sum = 0;
+			for (NegotiationSession.Result result : results) {
+				if (result.hasAgreement()) {
+					sum += result.getRounds();
+				}
+			}
+			int count = getAgreementCount();
+			return count == 0 ? Double.NaN : (double) sum / count;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getSessionsPerSecond() {
+			return results.size() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+		}
+
+		@Override
+		public String toString() {
+			return results.size() + " sessions in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms ("
+					+ String.format("%.1f", getSessionsPerSecond()) + " sessions/s), agreements " + getAgreementCount()
+					+ ", errors " + getErrorCount() + ", mean utilities " + String.format("%.3f", getMeanUtility(0))
+					+ " " + String.format("%.3f", getMeanUtility(1)) + ", mean rounds to agreement "
+					+ String.format("%.1f", getMeanRoundsToAgreement());
+		}
+	}
+}
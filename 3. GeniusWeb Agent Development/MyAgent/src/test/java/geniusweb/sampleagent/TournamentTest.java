@@ -0,0 +1,87 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.references.Parameters;
+import tudelft.utilities.logging.Reporter;
+
+public class TournamentTest {
+
+	private static final int SESSIONS = 8;
+	private static final int DEADLINE_ROUNDS = 40;
+
+	private final Reporter reporter = mock(Reporter.class);
+	private URI profile1;
+	private URI profile2;
+
+	@Before
+	public void before() throws IOException {
+		// Same domain, different preferences
+		profile1 = new ProfileGenerator(4, 5, 0, 1).writeTemporary();
+		profile2 = new ProfileGenerator(4, 5, 0, 2).writeTemporary();
+	}
+
+	@Test
+	public void testMyAgentAgainstRandomBidParty() throws InterruptedException, ExecutionException {
+		Tournament.Summary summary = new Tournament(4).run(sessions());
+		assertEquals(SESSIONS, summary.getResults().size());
+		assertEquals(0, summary.getErrorCount());
+		for (NegotiationSession.Result result : summary.getResults()) {
+			assertNull(result.getError());
+			assertTrue(result.getRounds() >= 1 && result.getRounds() <= DEADLINE_ROUNDS);
+			if (result.hasAgreement()) {
+				// The random party only accepts and offers bids above 0.7 if it finds one
+				assertTrue(result.getUtility(0) > 0);
+			} else {
+				assertEquals(0, result.getUtility(1), 0);
+			}
+		}
+		assertTrue(summary.getSessionsPerSecond() > 0);
+	}
+
+	@Test
+	public void testParallelSessionsIsolated() throws InterruptedException, ExecutionException {
+		// With seeded parties the parallel run gives the same outcomes as the sequential one
+		Tournament.Summary sequential = new Tournament(1).run(sessions());
+		Tournament.Summary parallel = new Tournament(4).run(sessions());
+		for (int n = 0; n < SESSIONS; n++) {
+			NegotiationSession.Result expected = sequential.getResults().get(n);
+			NegotiationSession.Result actual = parallel.getResults().get(n);
+			assertEquals(expected.getAgreement(), actual.getAgreement());
+			assertEquals(expected.getRounds(), actual.getRounds());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThreads() {
+		new Tournament(0);
+	}
+
+	private List<NegotiationSession> sessions() {
+		List<NegotiationSession> sessions = new ArrayList<>();
+		for (int n = 0; n < SESSIONS; n++) {
+			long seed = n;
+			// No time budget for the mutation, so that the offers only depend on the seed
+			Parameters parameters = new Parameters().with(MyAgent.SEED_PARAMETER, seed)
+					.with(MyAgent.MUTATION_BUDGET_PARAMETER, Long.MAX_VALUE / 1000);
+			NegotiationSession.Participant myAgent = new NegotiationSession.Participant("myagent",
+					() -> new MyAgent(reporter), profile1, parameters);
+			NegotiationSession.Participant random = new NegotiationSession.Participant("random",
+					() -> new RandomBidParty(reporter, seed), profile2, new Parameters());
+			sessions.add(new NegotiationSession(n, myAgent, random, DEADLINE_ROUNDS, reporter));
+		}
+		return sessions;
+	}
+}
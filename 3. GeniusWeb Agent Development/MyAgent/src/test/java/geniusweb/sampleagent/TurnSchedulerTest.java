@@ -0,0 +1,138 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.actions.Action;
+import geniusweb.actions.EndNegotiation;
+import geniusweb.actions.PartyId;
+import geniusweb.progress.Progress;
+
+public class TurnSchedulerTest {
+
+	private final Action action = new EndNegotiation(new PartyId("action"));
+	private final Action fallback = new EndNegotiation(new PartyId("fallback"));
+	private final List<Action> sent = Collections.synchronizedList(new ArrayList<>());
+	private TurnScheduler scheduler;
+
+	@Before
+	public void before() {
+		scheduler = new TurnScheduler(10, sent::add, e -> {
+			throw new IllegalStateException(e);
+		});
+	}
+
+	@After
+	public void after() {
+		scheduler.close();
+	}
+
+	@Test
+	public void testBudget() {
+		Progress progress = mock(Progress.class);
+		when(progress.getTerminationTime()).thenReturn(new Date(1000));
+		assertEquals(1000 - 10 - 400, scheduler.getBudgetMillis(progress, 400));
+		assertEquals(Long.MAX_VALUE, scheduler.getBudgetMillis(mock(Progress.class), 400));
+	}
+
+	@Test
+	public void testPlan() {
+		long millisecond = TimeUnit.MILLISECONDS.toNanos(1);
+		assertEquals(TurnScheduler.Strategy.FULL_SEARCH, scheduler.plan(Long.MAX_VALUE, Long.MAX_VALUE / 4));
+		assertEquals(TurnScheduler.Strategy.FULL_SEARCH, scheduler.plan(100, 0));
+		assertEquals(TurnScheduler.Strategy.FULL_SEARCH, scheduler.plan(100, 10 * millisecond));
+		assertEquals(TurnScheduler.Strategy.CACHED_CANDIDATE, scheduler.plan(100, 60 * millisecond));
+		assertEquals(TurnScheduler.Strategy.CACHED_CANDIDATE, scheduler.plan(-5, 0));
+	}
+
+	@Test
+	public void testCompletedInTime() throws IOException, InterruptedException {
+		scheduler.startTurn(50, fallback);
+		assertTrue(scheduler.complete(action));
+		// The watchdog must not fire after the turn is completed
+		Thread.sleep(100);
+		assertEquals(Collections.singletonList(action), sent);
+		assertEquals(0, scheduler.getFallbackCount());
+	}
+
+	@Test
+	public void testCompletedTurnsLeaveNoWatchdog() throws IOException {
+		// A budget up to a deadline an hour away, as in a long negotiation
+		for (int turn = 0; turn < 1000; turn++) {
+			scheduler.startTurn(TimeUnit.HOURS.toMillis(1), fallback);
+			assertTrue(scheduler.complete(action));
+		}
+		assertEquals(0, scheduler.getQueuedWatchdogCount());
+		// A turn that is started again without being completed
+		scheduler.startTurn(TimeUnit.HOURS.toMillis(1), fallback);
+		scheduler.startTurn(TimeUnit.HOURS.toMillis(1), fallback);
+		assertEquals(1, scheduler.getQueuedWatchdogCount());
+		assertEquals(1000, sent.size());
+	}
+
+	@Test
+	public void testNoRealTimeWatchdogUnderVirtualClock() throws IOException, InterruptedException {
+		// A millisecond of virtual time is not a millisecond of real time
+		TurnScheduler virtual = new TurnScheduler(10, sent::add, e -> {
+			throw new IllegalStateException(e);
+		}, new VirtualClock(0));
+		try {
+			virtual.startTurn(1, fallback);
+			Thread.sleep(100);
+			assertTrue(virtual.complete(action));
+			assertEquals(Collections.singletonList(action), sent);
+			assertEquals(0, virtual.getFallbackCount());
+
+			// A used up budget still falls back right away
+			virtual.startTurn(0, fallback);
+			assertFalse(virtual.complete(action));
+			assertEquals(1, virtual.getFallbackCount());
+		} finally {
+			virtual.close();
+		}
+	}
+
+	@Test
+	public void testFallbackSentAtDeadline() throws IOException, InterruptedException {
+		scheduler.startTurn(20, fallback);
+		Thread.sleep(200);
+		assertFalse(scheduler.complete(action));
+		assertEquals(Collections.singletonList(fallback), sent);
+		assertEquals(1, scheduler.getFallbackCount());
+	}
+
+	@Test
+	public void testBudgetUsedUp() throws IOException {
+		scheduler.startTurn(0, fallback);
+		assertSame(fallback, sent.get(0));
+		assertFalse(scheduler.complete(action));
+		assertEquals(1, sent.size());
+	}
+
+	@Test
+	public void testOneActionPerTurn() throws IOException, InterruptedException {
+		for (int n = 0; n < 100; n++) {
+			scheduler.startTurn(1, fallback);
+			scheduler.complete(action);
+		}
+		// A fallback action may still be on its way from the watchdog thread
+		Thread.sleep(50);
+		assertEquals(100, sent.size());
+		assertFalse(scheduler.complete(action));
+	}
+}
@@ -0,0 +1,73 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+public class UtilityPrecomputationTest {
+
+	private LinearAdditive profile;
+	private AllBidsList allBidsList;
+	private ToDoubleFunction<Bid> utility;
+
+	@Before
+	public void before() throws IOException {
+		// 3 issues with 20 values each: 8000 bids, enough to split into many ranges
+		profile = new ProfileGenerator(3, 20, 0, 1).toProfile();
+		allBidsList = new AllBidsList(profile.getDomain());
+		utility = bid -> profile.getUtility(bid).doubleValue();
+	}
+
+	@Test
+	public void testSameResultAsSequential() {
+		UtilityPrecomputation precomputation = new UtilityPrecomputation(allBidsList, utility, 4);
+		precomputation.compute();
+		assertEquals(8000, precomputation.getBids().length);
+		for (int i = 0; i < precomputation.getBids().length; i++) {
+			assertEquals(allBidsList.get(BigInteger.valueOf(i)), precomputation.getBids()[i]);
+			assertEquals(profile.getUtility(precomputation.getBids()[i]).doubleValue(),
+					precomputation.getUtilities()[i], 0);
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		UtilityPrecomputation single = new UtilityPrecomputation(allBidsList, utility, 1);
+		single.compute();
+		UtilityPrecomputation parallel = new UtilityPrecomputation(allBidsList, utility, 8);
+		parallel.compute();
+		for (int i = 0; i < single.getBids().length; i++) {
+			assertEquals(single.getBids()[i], parallel.getBids()[i]);
+			assertEquals(single.getUtilities()[i], parallel.getUtilities()[i], 0);
+		}
+	}
+
+	@Test
+	public void testSpeedupIsMeasured() {
+		// The sample of the sequential baseline is computed on top of the whole bid space
+		AtomicInteger calls = new AtomicInteger();
+		UtilityPrecomputation precomputation = new UtilityPrecomputation(allBidsList, bid -> {
+			calls.incrementAndGet();
+			return utility.applyAsDouble(bid);
+		}, 2);
+		precomputation.compute();
+		assertEquals(8000 + UtilityPrecomputation.SEQUENTIAL_SAMPLE_SIZE, calls.get());
+		assertTrue(String.valueOf(precomputation.getSpeedup()), precomputation.getSpeedup() > 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroParallelism() {
+		new UtilityPrecomputation(allBidsList, utility, 0);
+	}
+}
@@ -0,0 +1,110 @@
+package geniusweb.sampleagent;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import geniusweb.progress.ProgressRounds;
+import geniusweb.progress.ProgressTime;
+
+/**
+ * Clock that only moves when it is told to, for running a negotiation with a
+ * deadline in time as fast as the parties can compute. Given to
+ * {@link MyAgent#MyAgent(tudelft.utilities.logging.Reporter, Clock)}, it
+ * replaces the wall clock the agent passes to its Progress, and its
+ * {@link TurnScheduler} arms no real-time watchdog.
+ * <p>
+ * The GeniusWeb {@link ProgressTime} and {@link ProgressRounds} only depend on
+ * the time they are given, so created by {@link #progressTime(long)} and
+ * {@link #progressRounds(int, long)} they run in the virtual time of this
+ * clock. With a step, each read of the clock moves it forward by that step:
+ * MyAgent reads the clock once per turn, so a one hour deadline with a step of
+ * a minute ends after 60 turns, in milliseconds of real time.
+ */
+public class VirtualClock extends Clock {
+
+	private final AtomicLong millis;
+	private final long stepMillis;
+
+	/**
+	 * @param startMillis virtual time at the start, in ms since the epoch
+	 */
+	public VirtualClock(long startMillis) {
+		this(startMillis, 0);
+	}
+
+	/**
+	 * @param startMillis virtual time at the start, in ms since the epoch
+	 * @param stepMillis  the clock moves forward by this much after each read
+	 *                    through {@link #millis()} or {@link #instant()}
+	 */
+	public VirtualClock(long startMillis, long stepMillis) {
+		if (stepMillis < 0) {
+			throw new IllegalArgumentException("Step must not be negative but is " + stepMillis);
+		}
+		this.millis = new AtomicLong(startMillis);
+		this.stepMillis = stepMillis;
+	}
+
+	@Override
+	public long millis() {
+		return millis.getAndAdd(stepMillis);
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis());
+	}
+
+	/**
+	 * @return the current virtual time, without moving the clock
+	 */
+	public long peek() {
+		return millis.get();
+	}
+
+	/**
+	 * Moves the clock forward.
+	 */
+	public void advance(long durationMillis) {
+		if (durationMillis < 0) {
+			throw new IllegalArgumentException("The clock can not go back, duration is " + durationMillis);
+		}
+		millis.addAndGet(durationMillis);
+	}
+
+	/**
+	 * @return a progress of the given duration that starts at the current
+	 *         virtual time
+	 */
+	public ProgressTime progressTime(long durationMillis) {
+		return new ProgressTime(durationMillis, new Date(peek()));
+	}
+
+	/**
+	 * @return a progress of the given number of rounds that starts at round 0
+	 *         and ends at the latest after the given duration of virtual time
+	 */
+	public ProgressRounds progressRounds(int rounds, long durationMillis) {
+		return new ProgressRounds(rounds, 0, new Date(peek() + durationMillis));
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return ZoneOffset.UTC;
+	}
+
+	/**
+	 * The virtual time has no zone, only UTC is supported.
+	 */
+	@Override
+	public Clock withZone(ZoneId zone) {
+		if (!ZoneOffset.UTC.equals(zone)) {
+			throw new UnsupportedOperationException("VirtualClock only supports UTC, not " + zone);
+		}
+		return this;
+	}
+}
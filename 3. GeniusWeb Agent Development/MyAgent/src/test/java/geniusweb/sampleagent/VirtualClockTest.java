@@ -0,0 +1,40 @@
+package geniusweb.sampleagent;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.ZoneId;
+
+import org.junit.Test;
+
+public class VirtualClockTest {
+
+	@Test
+	public void testOnlyMovesWhenTold() {
+		VirtualClock clock = new VirtualClock(1000);
+		assertEquals(1000, clock.millis());
+		assertEquals(1000, clock.millis());
+		clock.advance(250);
+		assertEquals(1250, clock.millis());
+		assertEquals(1250, clock.instant().toEpochMilli());
+	}
+
+	@Test
+	public void testStepPerRead() {
+		VirtualClock clock = new VirtualClock(0, 60000);
+		assertEquals(0, clock.millis());
+		assertEquals(60000, clock.peek());
+		assertEquals(60000, clock.millis());
+		assertEquals(120000, clock.instant().toEpochMilli());
+		assertEquals(180000, clock.peek());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoGoingBack() {
+		new VirtualClock(0).advance(-1);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testOnlyUtc() {
+		new VirtualClock(0).withZone(ZoneId.of("Europe/Amsterdam"));
+	}
+}
@@ -0,0 +1,55 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Date;
+import java.util.logging.Level;
+
+import geniusweb.actions.PartyId;
+import geniusweb.inform.Settings;
+import geniusweb.progress.ProgressTime;
+import geniusweb.references.Parameters;
+import geniusweb.references.ProfileRef;
+import geniusweb.references.ProtocolRef;
+import tudelft.utilities.logging.Reporter;
+
+/**
+ * Synthetic domains and agent setup shared by the benchmarks.
+ */
+class BenchmarkAgents {
+
+	static final PartyId PARTY = new PartyId("benchmarkParty");
+	static final PartyId OPPONENT = new PartyId("benchmarkOpponent");
+	// Values per issue of the synthetic domains, a domain with n issues has 10^n bids
+	static final int VALUES_PER_ISSUE = 10;
+
+	/**
+	 * Reporter that drops everything, so that the benchmarks measure the agent
+	 * and not the console.
+	 */
+	static final Reporter SILENT = new Reporter() {
+		@Override
+		public void log(Level level, String msg) {
+		}
+
+		@Override
+		public void log(Level level, String msg, Throwable thrown) {
+		}
+	};
+
+	/**
+	 * Writes a random profile with the given number of issues to a temporary
+	 * file.
+	 * 
+	 * @return file: URI of the profile
+	 */
+	static URI writeProfile(int issues, long seed) throws IOException {
+		return new ProfileGenerator(issues, VALUES_PER_ISSUE, 50, seed).writeTemporary();
+	}
+
+	// SAOP settings with a one hour deadline, so that no benchmark reaches it
+	static Settings settings(URI profile, Parameters parameters) {
+		return new Settings(PARTY, new ProfileRef(profile), new ProtocolRef("SAOP"),
+				new ProgressTime(3600000L, new Date()), parameters);
+	}
+}
@@ -0,0 +1,21 @@
+package geniusweb.sampleagent;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the MyAgent benchmarks with the GC profiler, so that every result comes
+ * with its allocation rate. Accepts the usual JMH command line options, for
+ * example a regular expression to select benchmarks.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).include("geniusweb.sampleagent.*Benchmark")
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,100 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+
+/**
+ * Measures with JOL the heap retained by the bid index of init() on a
+ * generated domain, 10^6 bids by default, and prints the report:
+ * <ul>
+ * <li>before: the LinkedHashMap of BigDecimal utilities that init() kept, and
+ * the HashMap it was sorted from through a LinkedList
+ * <li>after: the {@link BidIndex} of a Bid and a double array, and the
+ * {@link OffHeapBidIndex} that keeps the {@link BidCodec} codes in a mapped
+ * file
+ * </ul>
+ * The Bid objects are reported apart and subtracted from the structures that
+ * hold them, the mapped file is reported by its length.
+ * <p>
+ * {@code java -cp target/benchmarks.jar geniusweb.sampleagent.FootprintReport [issues]}
+ */
+public class FootprintReport {
+
+	public static void main(String[] args) throws IOException {
+		int issues = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		LinearAdditive profile = new ProfileGenerator(issues, BenchmarkAgents.VALUES_PER_ISSUE, 50, 1).toProfile();
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		int size = allBids.size().intValue();
+
+		Bid[] bids = new Bid[size];
+		double[] utilities = new double[size];
+		HashMap<Bid, BigDecimal> utilityMap = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			bids[i] = allBids.get(BigInteger.valueOf(i));
+			BigDecimal utility = profile.getUtility(bids[i]);
+			utilities[i] = utility.doubleValue();
+			utilityMap.put(bids[i], utility);
+		}
+		// Each bid is a root, so that the array itself is not part of the bids
+		GraphLayout bidLayout = GraphLayout.parseInstance((Object[]) bids);
+		System.out.println("Domain of " + size + " bids, the bids take " + bidLayout.totalSize() + " bytes");
+
+		LinkedHashMap<Bid, BigDecimal> sortedMap = sortByUtility(utilityMap);
+		report("LinkedHashMap<Bid, BigDecimal> (before)", size,
+				GraphLayout.parseInstance(sortedMap).subtract(bidLayout).totalSize());
+		report("LinkedHashMap and HashMap (before, peak)", size,
+				GraphLayout.parseInstance(sortedMap, utilityMap).subtract(bidLayout).totalSize());
+		// Released before the next structure is built
+		utilityMap = null;
+		sortedMap = null;
+
+		BidIndex index = BidIndex.sort(bids, utilities);
+		report("BidIndex (after)", size, GraphLayout.parseInstance(index).subtract(bidLayout).totalSize());
+
+		BidCodec codec = new BidCodec(profile.getDomain());
+		Path file = Files.createTempFile("footprint", ".index");
+		try {
+			OffHeapBidIndex offHeapIndex = OffHeapBidIndex.create(file, index, codec);
+			report("OffHeapBidIndex (after, heap)", size,
+					GraphLayout.parseInstance(offHeapIndex).subtract(bidLayout).totalSize());
+			report("OffHeapBidIndex (after, mapped file)", size, Files.size(file));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * The sort of init() before {@link BidIndex}, in ascending order of
+	 * utility.
+	 */
+	private static LinkedHashMap<Bid, BigDecimal> sortByUtility(HashMap<Bid, BigDecimal> utilityMap) {
+		List<Map.Entry<Bid, BigDecimal>> list = new LinkedList<>(utilityMap.entrySet());
+		Collections.sort(list, Comparator.comparing(Map.Entry::getValue));
+		LinkedHashMap<Bid, BigDecimal> sortedMap = new LinkedHashMap<>();
+		for (Map.Entry<Bid, BigDecimal> entry : list) {
+			sortedMap.put(entry.getKey(), entry.getValue());
+		}
+		return sortedMap;
+	}
+
+	private static void report(String structure, int size, long bytes) {
+		System.out.println(String.format("%-40s %,14d bytes %8.1f bytes per bid", structure, bytes,
+				(double) bytes / size));
+	}
+}
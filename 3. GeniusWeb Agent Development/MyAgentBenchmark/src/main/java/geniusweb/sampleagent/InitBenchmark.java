@@ -0,0 +1,67 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import geniusweb.inform.Settings;
+import geniusweb.references.Parameters;
+
+/**
+ * Time MyAgent needs to handle Settings (init) on synthetic domains of 10^3
+ * to 10^5 bids. Each agent is terminated after its call, outside of the
+ * measurement, so that the threads and index files it creates do not pile up
+ * during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InitBenchmark {
+
+	@Param({ "3", "4", "5" })
+	public int issues;
+
+	private Settings settings;
+	private MyAgent agent;
+
+	@Setup
+	public void setup() throws IOException {
+		settings = BenchmarkAgents.settings(BenchmarkAgents.writeProfile(issues, 1), new Parameters());
+	}
+
+	@Benchmark
+	public MyAgent init() {
+		agent = new MyAgent(BenchmarkAgents.SILENT);
+		agent.connect(new TestConnection());
+		agent.notifyChange(settings);
+		return agent;
+	}
+
+	/**
+	 * Stops the threads of the agent and deletes its index file. The call takes
+	 * milliseconds, so the cost of an invocation level teardown does not matter.
+	 */
+	@TearDown(Level.Invocation)
+	public void terminate() {
+		if (agent != null) {
+			agent.terminate();
+			agent = null;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package geniusweb.sampleagent;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of calling the concession and acceptance components through the BOA
+ * interfaces, as MyAgent does with the components it resolves in init(),
+ * against the same computation written inline, as MyAgent did before the
+ * components were pluggable. With one implementation per call site the JIT
+ * inlines the interface calls, so both should take the same time.
+ * <p>
+ * A difference in this benchmark alone does not show a regression. That is
+ * decided on the whole turn, with {@link TurnBenchmark#yourTurn()} and its
+ * default components, run on the same machine on the version before the
+ * components were pluggable and on this one:
+ * {@code java -jar target/benchmarks.jar TurnBenchmark.yourTurn -rf json -rff <version>.json}.
+ * The throughput of this version must stay within the error of both results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StrategyBenchmark {
+
+	// Number of precomputed turns, a power of 2 so that the next one is found with a mask
+	private static final int TURNS = 1024;
+
+	private final double[] times = new double[TURNS];
+	private final double[] utilities = new double[TURNS];
+	private int turn;
+	// Not final, like the fields of MyAgent, so that the JIT can not fold them into constants
+	private ConcessionStrategy concession;
+	private AcceptanceStrategy acceptance;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		for (int n = 0; n < TURNS; n++) {
+			times[n] = n / (double) TURNS;
+			utilities[n] = random.nextDouble();
+		}
+		concession = new LinearConcession();
+		acceptance = new ThresholdAcceptance();
+	}
+
+	@Benchmark
+	public boolean hardCoded() {
+		int n = turn++ & (TURNS - 1);
+		double threshold = 0.7 + (1 - times[n]) * 0.3;
+		return utilities[n] > threshold;
+	}
+
+	@Benchmark
+	public boolean strategies() {
+		int n = turn++ & (TURNS - 1);
+		double threshold = concession.getAcceptableUtility(times[n]);
+		return acceptance.isAcceptable(utilities[n], threshold, times[n]);
+	}
+}
@@ -0,0 +1,49 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import geniusweb.references.Parameters;
+
+/**
+ * Runs a local tournament of MyAgent against itself and against
+ * {@link RandomBidParty} on generated profiles, and prints the agreements,
+ * utilities, rounds to agreement and sessions per second of each pairing.
+ * <p>
+ * {@code java -cp target/benchmarks.jar geniusweb.sampleagent.TournamentRunner [sessions] [threads] [rounds] [issues]}
+ */
+public class TournamentRunner {
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int issues = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+
+		URI profile1 = BenchmarkAgents.writeProfile(issues, 1);
+		URI profile2 = BenchmarkAgents.writeProfile(issues, 2);
+		Tournament tournament = new Tournament(threads);
+
+		List<NegotiationSession> againstRandom = new ArrayList<>();
+		List<NegotiationSession> againstItself = new ArrayList<>();
+		for (int n = 0; n < sessions; n++) {
+			long seed = n;
+			NegotiationSession.Participant myAgent = myAgent("myagent", profile1, seed);
+			againstRandom.add(new NegotiationSession(n, myAgent, new NegotiationSession.Participant("random",
+					() -> new RandomBidParty(BenchmarkAgents.SILENT, seed), profile2, new Parameters()), rounds,
+					BenchmarkAgents.SILENT));
+			againstItself.add(new NegotiationSession(n, myAgent, myAgent("other", profile2, seed + sessions), rounds,
+					BenchmarkAgents.SILENT));
+		}
+		System.out.println("MyAgent against RandomBidParty: " + tournament.run(againstRandom));
+		System.out.println("MyAgent against MyAgent: " + tournament.run(againstItself));
+	}
+
+	private static NegotiationSession.Participant myAgent(String name, URI profile, long seed) {
+		return new NegotiationSession.Participant(name, () -> new MyAgent(BenchmarkAgents.SILENT), profile,
+				new Parameters().with(MyAgent.SEED_PARAMETER, seed));
+	}
+}
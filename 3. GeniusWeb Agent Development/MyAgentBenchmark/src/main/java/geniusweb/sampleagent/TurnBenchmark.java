@@ -0,0 +1,115 @@
+package geniusweb.sampleagent;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import geniusweb.actions.Offer;
+import geniusweb.bidspace.AllBidsList;
+import geniusweb.inform.ActionDone;
+import geniusweb.inform.Settings;
+import geniusweb.inform.YourTurn;
+import geniusweb.issuevalue.Bid;
+import geniusweb.profile.utilityspace.LinearAdditive;
+import geniusweb.references.Parameters;
+
+/**
+ * Throughput of the per-turn work of MyAgent after it has seen some offers of
+ * the opponent: the acceptance check, making an offer, and the full YourTurn
+ * path through notifyChange and the TestConnection.
+ * <p>
+ * The BOA components are given as parameters. Their defaults behave as MyAgent
+ * did before the components were pluggable, so {@link #yourTurn()} with the
+ * defaults can be compared with its result on that version. Other components
+ * are measured with for example {@code -p bidding=timeDependent}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TurnBenchmark {
+
+	// Number of opponent offers the agent has received before the measurement
+	private static final int OPPONENT_OFFERS = 50;
+
+	@Param({ "3", "4", "5" })
+	public int issues;
+
+	@Param({ "pareto" })
+	public String bidding;
+
+	@Param({ "threshold" })
+	public String acceptance;
+
+	@Param({ "linear" })
+	public String concession;
+
+	private MyAgent agent;
+	private TestConnection connection;
+	private Bid opponentBid;
+	private final YourTurn yourTurn = new YourTurn();
+
+	@Setup
+	public void setup() throws IOException {
+		Parameters parameters = new Parameters().with(MyAgent.BIDDING_PARAMETER, bidding)
+				.with(MyAgent.ACCEPTANCE_PARAMETER, acceptance).with(MyAgent.CONCESSION_PARAMETER, concession);
+		Settings settings = BenchmarkAgents.settings(BenchmarkAgents.writeProfile(issues, 1), parameters);
+		agent = new MyAgent(BenchmarkAgents.SILENT);
+		connection = new TestConnection();
+		agent.connect(connection);
+		agent.notifyChange(settings);
+
+		LinearAdditive profile = new ProfileGenerator(issues, BenchmarkAgents.VALUES_PER_ISSUE, 50, 1).toProfile();
+		AllBidsList allBids = new AllBidsList(profile.getDomain());
+		Random random = new Random(2);
+		for (int n = 0; n < OPPONENT_OFFERS; n++) {
+			opponentBid = allBids.get(BigInteger.valueOf(random.nextInt(allBids.size().intValue())));
+			agent.notifyChange(new ActionDone(new Offer(BenchmarkAgents.OPPONENT, opponentBid)));
+			agent.notifyChange(yourTurn);
+		}
+	}
+
+	// The connection keeps all actions, it is emptied so that it does not grow during the whole run
+	@Setup(Level.Iteration)
+	public void clearActions() {
+		connection.getActions().clear();
+	}
+
+	// Stops the threads of the agent and deletes its index file before the next trial
+	@TearDown
+	public void terminate() {
+		agent.terminate();
+	}
+
+	@Benchmark
+	public boolean isAcceptable() {
+		return agent.isAcceptable(opponentBid);
+	}
+
+	@Benchmark
+	public Offer makeAnOffer() {
+		return agent.makeAnOffer();
+	}
+
+	@Benchmark
+	public void yourTurn() {
+		agent.notifyChange(yourTurn);
+	}
+}